@@ -0,0 +1,36 @@
+package io.hawt.camelcatalog.maven.plugin;
+
+import java.io.File;
+
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+
+/**
+ * Shared setup of the benchmarks, which run against the camel-catalog unpacked
+ * into the build directory by the test resources phase
+ */
+final class BenchmarkSupport {
+
+    static final String TARGET_DIR = "./target";
+
+    static final File CATALOG_DIR = new File(TARGET_DIR + "/camel-catalog");
+
+    static final String CAMEL_VERSION = "3.21.1";
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * A log only reporting warnings, so the progress of the generator does not
+     * get in the way of the benchmark output
+     */
+    static Log quietLog() {
+        return new DefaultLog(new ConsoleLogger(Logger.LEVEL_WARN, "benchmark"));
+    }
+
+    static CamelModelGenerator generator(File schemaDir) {
+        return new CamelModelGenerator(quietLog(), CAMEL_VERSION, CATALOG_DIR, schemaDir, "camel-model.js");
+    }
+}
@@ -0,0 +1,47 @@
+package io.hawt.camelcatalog.maven.plugin;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full generation of the camel models from the unpacked camel-catalog, parsing the
+ * entries sequentially and with all the available processors
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GenerateBenchmark {
+
+    @Param({ "1", "0" })
+    public int parallelism;
+
+    private CamelModelGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = BenchmarkSupport.generator(new File(BenchmarkSupport.TARGET_DIR + "/benchmark-generate"));
+        generator.setParallelism(parallelism);
+    }
+
+    @Benchmark
+    public void generate() throws MojoFailureException, MojoExecutionException {
+        generator.generate();
+    }
+}
@@ -0,0 +1,57 @@
+package io.hawt.camelcatalog.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonObject;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of a single catalog entry into its schema, for a small entry (rest)
+ * and a large one (aggregate)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseSchemaBenchmark {
+
+    @Param({ "rest", "aggregate" })
+    public String model;
+
+    private CamelModelGenerator generator;
+
+    private String json;
+
+    @Setup
+    public void setUp() throws IOException, MojoExecutionException {
+        generator = BenchmarkSupport.generator(new File(BenchmarkSupport.TARGET_DIR + "/benchmark-schemas"));
+        generator.initIcons();
+
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("source-" + model + ".json")) {
+            json = new String(Objects.requireNonNull(in).readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public JsonObject parseSchemaObject() {
+        return generator.parseSchemaObject(model, "model", json);
+    }
+}
@@ -0,0 +1,88 @@
+package io.hawt.camelcatalog.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import io.hawt.camelcatalog.maven.plugin.util.CatalogReader;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing of the already parsed schemas of all the components into their group
+ * file, in the output modes changing the serialization
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerializeBenchmark {
+
+    private static final String COMPONENTS_PATH = CatalogReader.CATALOG_PATH + "/components";
+
+    @Param({ "false", "true" })
+    public boolean compact;
+
+    @Param({ "false", "true" })
+    public boolean deduplicate;
+
+    private final File schemaDir = new File(BenchmarkSupport.TARGET_DIR + "/benchmark-serialize");
+
+    private final Map<String, JsonObject> schemas = new LinkedHashMap<>();
+
+    private Gson gson;
+
+    @Setup
+    public void setUp() throws IOException, MojoExecutionException {
+        CamelModelGenerator generator = BenchmarkSupport.generator(schemaDir);
+        generator.initIcons();
+        try (CatalogReader catalog = CatalogReader.open(BenchmarkSupport.CATALOG_DIR)) {
+            for (String name : catalog.names(COMPONENTS_PATH)) {
+                try (Reader reader = new InputStreamReader(
+                    catalog.open(COMPONENTS_PATH + "/" + name + ".json"), StandardCharsets.UTF_8)) {
+                    schemas.put(name, generator.parseSchemaObject(name, "component", reader).getAsJsonObject(name));
+                }
+            }
+        }
+
+        GsonBuilder builder = new GsonBuilder();
+        if (!compact) {
+            builder.setPrettyPrinting();
+        }
+        gson = builder.create();
+        if (!schemaDir.isDirectory() && !schemaDir.mkdirs()) {
+            throw new IOException("Cannot create " + schemaDir);
+        }
+    }
+
+    @Benchmark
+    public void writeComponents() throws IOException {
+        try (GroupSchemaWriter writer = new GroupSchemaWriter(gson, schemaDir, "components",
+            new GroupSchemaWriter.Options().deduplicate(deduplicate))) {
+            for (Map.Entry<String, JsonObject> schema : schemas.entrySet()) {
+                writer.add(schema.getKey(), schema.getValue());
+            }
+            writer.commit();
+        }
+    }
+}
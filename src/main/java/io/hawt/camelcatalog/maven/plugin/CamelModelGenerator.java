@@ -1,20 +1,30 @@
 package io.hawt.camelcatalog.maven.plugin;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
-import java.util.function.BiConsumer;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -22,50 +32,70 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.hawt.camelcatalog.maven.plugin.util.CatalogReader;
+import io.hawt.camelcatalog.maven.plugin.util.Cbor;
+import io.hawt.camelcatalog.maven.plugin.util.FileHelper;
+import io.hawt.camelcatalog.maven.plugin.util.Fingerprint;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 
-import static io.hawt.camelcatalog.maven.plugin.util.FileHelper.loadText;
-
 public class CamelModelGenerator {
 
-    private static class NameSchemaPair {
-        private final String name;
-        private final Map<String, JsonObject> schema;
+    private static final String MODELS_PATH = CatalogReader.CATALOG_PATH + "/models";
 
-        public NameSchemaPair(String name) {
-            this.name = name;
-            this.schema = new LinkedHashMap<>();
-        }
+    private static final String COMPONENTS_PATH = CatalogReader.CATALOG_PATH + "/components";
 
-        public void addGroupSchema(String group, JsonObject groupSchema) {
-            schema.put(group, groupSchema);
-        }
+    private static final String DEFINITIONS = "definitions";
 
-        public JsonObject getGroupSchema(String group) {
-            return schema.get(group);
-        }
+    private static final String RESTS = "rests";
 
-        public boolean isEmpty() {
-            return schema.isEmpty();
-        }
+    private static final String DATAFORMATS = "dataformats";
 
-        public String getName() {
-            return name;
-        }
+    private static final String LANGUAGES = "languages";
 
-        public Map<String, JsonObject> getSchema() {
-            return schema;
-        }
+    private static final String COMPONENTS = "components";
 
-        public Set<String> getGroups() {
-            return schema.keySet();
-        }
+    /**
+     * The groups of the camel model, in the order they are exported from camelModel.js
+     */
+    private static final List<String> GROUPS = List.of(DEFINITIONS, RESTS, DATAFORMATS, LANGUAGES, COMPONENTS);
+
+    /**
+     * The classes turning the catalog entries into the generated files
+     */
+    private static final List<Class<?>> GENERATOR_CLASSES = List.of(CamelModelGenerator.class,
+        CatalogReader.class, CatalogFilter.class, GenerationManifest.class, GroupSchemaWriter.class,
+        Cbor.class, FileHelper.class, Fingerprint.class);
 
-        @Override
-        public String toString() {
-            return name;
+    /**
+     * Number of entries parsed per thread before they are handed over to the writers
+     */
+    private static final int BATCH_SIZE_PER_THREAD = 8;
+
+    @FunctionalInterface
+    private interface EntryParser<T> {
+        T parse(Reader reader) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface EntryConsumer<T> {
+        void accept(String name, T value) throws IOException;
+    }
+
+    /**
+     * A model sorted into its group, along with its schema when it had to be parsed for it
+     */
+    private static class ModelEntry {
+        private final String group;
+        private final JsonObject schema;
+
+        ModelEntry(String group, JsonObject schema) {
+            this.group = group;
+            this.schema = schema;
         }
     }
 
@@ -79,22 +109,85 @@ public class CamelModelGenerator {
 
     private final String schemaFileName;
 
-    private final Gson gson;
+    private Gson gson;
+
+    /**
+     * Version of the plugin running the generator, null when unknown
+     */
+    private String pluginVersion;
 
     /**
      * Known icons for the models
      */
     private final Properties icons = new Properties();
 
+    /**
+     * Number of threads used to parse the catalog entries, 1 parses them on the calling thread
+     */
+    private int parallelism = 1;
+
+    /**
+     * Directory keeping the manifest of the last generation, null to always generate everything
+     */
+    private File workDir;
+
+    /**
+     * Cache of generated models shared between projects, null when not caching
+     */
+    private ModelCache cache;
+
+    /**
+     * Whether the json files are written without indentation and line breaks
+     */
+    private boolean compact;
+
+    /**
+     * Whether a gzip copy of each json file is written next to it
+     */
+    private boolean compress;
+
+    /**
+     * Whether the property descriptors used by several entries are shared
+     */
+    private boolean deduplicate;
+
+    /**
+     * Whether each entry is also written to its own file, listed in an index per group
+     */
+    private boolean shard;
+
+    /**
+     * Whether the model script loads the groups on demand instead of importing them
+     */
+    private boolean lazy;
+
+    /**
+     * Whether the descriptions are written to a docs file of their own
+     */
+    private boolean splitDocs;
+
+    /**
+     * Whether the titles are written to the docs file along with the descriptions
+     */
+    private boolean splitTitles;
+
+    /**
+     * Whether a CBOR encoding of each group file is written next to it
+     */
+    private boolean binary;
+
+    /**
+     * Selects the entries and properties making it into the camel model
+     */
+    private CatalogFilter filter = new CatalogFilter();
+
     public CamelModelGenerator(Log log, String camelVersion, File camelCatalogDir, File schemaDir, String schemaFileName) {
         this.log = log;
         this.camelVersion = camelVersion;
         this.camelCatalogDir = camelCatalogDir;
         this.schemaDir = schemaDir;
         this.schemaFileName = schemaFileName;
-        this.gson = new GsonBuilder()
-            .setPrettyPrinting()
-            .create();
+        setCompact(false);
 
         Objects.requireNonNull(this.log, "log must be initialised");
         Objects.requireNonNull(this.camelVersion, "camel version must be initialised");
@@ -116,22 +209,474 @@ public class CamelModelGenerator {
         return log;
     }
 
-    private void camelCatalogExtract(URL camelCatalogDir, String dataPath, BiConsumer<String, String> callback)
+    public String getPluginVersion() {
+        return pluginVersion;
+    }
+
+    /**
+     * Sets the version of the plugin running the generator, which the files generated, kept
+     * for the next generation or cached, are told apart by along with the generator code
+     */
+    public void setPluginVersion(String pluginVersion) {
+        this.pluginVersion = pluginVersion;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to parse the catalog entries. A value of 1 parses
+     * the entries sequentially while 0 or less uses all the available processors.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    public File getWorkDir() {
+        return workDir;
+    }
+
+    /**
+     * Sets the directory keeping the manifest of the last generation. When set only the
+     * catalog entries that changed since are parsed again, and only the group files holding
+     * them are rewritten.
+     */
+    public void setWorkDir(File workDir) {
+        this.workDir = workDir;
+    }
+
+    /**
+     * Sets the cache of generated models shared between projects, null not to use one
+     */
+    void setCache(ModelCache cache) {
+        this.cache = cache;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Sets whether the json files are written on a single line instead of pretty printed,
+     * which makes them noticeably smaller to download
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+        GsonBuilder builder = new GsonBuilder();
+        if (!compact) {
+            builder.setPrettyPrinting();
+        }
+        this.gson = builder.create();
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    /**
+     * Sets whether a precompressed <tt>.json.gz</tt> copy of each json file is written next to
+     * it, for web servers to serve directly to the clients accepting gzip encoding
+     */
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public boolean isDeduplicate() {
+        return deduplicate;
+    }
+
+    /**
+     * Sets whether the property descriptors used by several entries of a group, like the
+     * <tt>bridgeErrorHandler</tt> of the components, are written once into a shared table
+     * the entries refer to. The generated model script resolves the references on import.
+     */
+    public void setDeduplicate(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
+    public boolean isShard() {
+        return shard;
+    }
+
+    /**
+     * Sets whether each catalog entry is also written to its own small file, next to an
+     * index per group listing the name, title, group, icon and file of its entries, so a
+     * client can list the entries straight away and fetch their properties on demand
+     */
+    public void setShard(boolean shard) {
+        this.shard = shard;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Sets whether the model script exports an async loader per group, based on dynamic
+     * <tt>import()</tt>, along with a summary listing the entries of every group, instead of
+     * importing all the groups up front. Bundlers can then split the groups out of the
+     * initial chunk of the application.
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public boolean isSplitDocs() {
+        return splitDocs;
+    }
+
+    /**
+     * Sets whether the descriptions of the entries and of their properties are moved out of
+     * the group files into <tt>&lt;group&gt;-camel-model-docs.json</tt> files, for clients to
+     * load only when showing them. The model script exports the functions to load and merge
+     * them back.
+     */
+    public void setSplitDocs(boolean splitDocs) {
+        this.splitDocs = splitDocs;
+    }
+
+    public boolean isSplitTitles() {
+        return splitTitles;
+    }
+
+    /**
+     * Sets whether the titles are moved to the docs files along with the descriptions,
+     * which only happens when splitting the docs
+     */
+    public void setSplitTitles(boolean splitTitles) {
+        this.splitTitles = splitTitles;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Sets whether each group file is also written in the binary CBOR format, into a
+     * <tt>&lt;group&gt;-camel-model.cbor</tt> file, which is smaller and faster to decode
+     * than the json text
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    public CatalogFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the filter selecting the catalog entries, and their properties, to generate.
+     * The entries left out are never read beyond their label, nor parsed.
+     *
+     * @throws IllegalArgumentException when the filter refers to an unknown group
+     */
+    public void setFilter(CatalogFilter filter) {
+        Set<String> unknown = new TreeSet<>(filter.getGroups());
+        unknown.removeAll(GROUPS);
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown camel model groups " + unknown + ", expected any of " + GROUPS);
+        }
+        this.filter = filter;
+    }
+
+    /**
+     * Hashes everything the generated files depend on: the content of the camel-catalog,
+     * the generator itself and the settings that change the output
+     */
+    public String fingerprint() throws IOException {
+        return generationFingerprint()
+            .add(camelCatalogDir)
+            .add(schemaDir.getAbsolutePath())
+            .value();
+    }
+
+    /**
+     * Starts the hash of what the generated files depend on besides the content of the
+     * camel-catalog: its version, the generator and the settings that change the output
+     */
+    private Fingerprint generationFingerprint() throws IOException {
+        return new Fingerprint()
+            .add(camelVersion)
+            .add(generatorFingerprint())
+            .add(outputSettings());
+    }
+
+    /**
+     * Hashes what turns a catalog entry into the generated files: the plugin version, the
+     * code of every class of the generation and the icons
+     */
+    private String generatorFingerprint() throws IOException {
+        Fingerprint fingerprint = new Fingerprint().add(pluginVersion);
+        for (Class<?> generatorClass : GENERATOR_CLASSES) {
+            fingerprint.add(generatorClass);
+        }
+        fingerprint.add(CamelModelGenerator.class.getClassLoader().getResourceAsStream("icons.properties"));
+        return fingerprint.value();
+    }
+
+    /**
+     * The settings shaping the written files, but not the schemas they hold
+     */
+    private String outputSettings() {
+        StringBuilder settings = new StringBuilder(schemaFileName)
+            .append(",compact=").append(compact)
+            .append(",compress=").append(compress)
+            .append(",deduplicate=").append(deduplicate)
+            .append(",shard=").append(shard)
+            .append(",lazy=").append(lazy)
+            .append(",splitDocs=").append(splitDocs)
+            .append(",splitTitles=").append(splitDocs && splitTitles)
+            .append(",binary=").append(binary);
+        if (!filter.isEmpty()) {
+            settings.append(",filter=").append(filter);
+        }
+        return settings.toString();
+    }
+
+    /**
+     * Identifies the generated files in the shared cache: released catalogs never change
+     * so their version is enough, snapshots are hashed. The plugin version and code are
+     * hashed too, as another plugin may generate other files from the same catalog.
+     */
+    private String cacheKey() throws IOException {
+        Fingerprint fingerprint = generationFingerprint();
+        if (camelVersion.endsWith("-SNAPSHOT")) {
+            fingerprint.add(camelCatalogDir);
+        }
+        return camelVersion + "-" + fingerprint.value();
+    }
+
+    /**
+     * Names of all the files and directories the generator writes into the schema directory
+     */
+    private List<String> outputFileNames() {
+        List<String> fileNames = new ArrayList<>();
+        for (String group : GROUPS) {
+            fileNames.addAll(groupFileNames(group));
+        }
+        fileNames.add(schemaFileName);
+        return fileNames;
+    }
+
+    /**
+     * Names of the files and directories of the groups which the options do not produce,
+     * left over from a generation with other options
+     */
+    private List<String> staleFileNames() {
+        List<String> fileNames = new ArrayList<>();
+        for (String group : GROUPS) {
+            fileNames.addAll(GroupSchemaWriter.outputFileNames(group));
+        }
+        fileNames.removeAll(outputFileNames());
+        return fileNames;
+    }
+
+    private List<String> groupFileNames(String group) {
+        List<String> fileNames = new ArrayList<>();
+        fileNames.add(GroupSchemaWriter.fileName(group));
+        if (compress) {
+            fileNames.add(GroupSchemaWriter.compressedFileName(GroupSchemaWriter.fileName(group)));
+        }
+        if (binary) {
+            fileNames.add(GroupSchemaWriter.binaryFileName(group));
+            if (compress) {
+                fileNames.add(GroupSchemaWriter.compressedFileName(GroupSchemaWriter.binaryFileName(group)));
+            }
+        }
+        if (splitDocs) {
+            fileNames.add(GroupSchemaWriter.docsFileName(group));
+            if (compress) {
+                fileNames.add(GroupSchemaWriter.compressedFileName(GroupSchemaWriter.docsFileName(group)));
+            }
+        }
+        if (shard) {
+            fileNames.add(GroupSchemaWriter.indexFileName(group));
+            fileNames.add(GroupSchemaWriter.shardDirName(group));
+        }
+        return fileNames;
+    }
+
+    /**
+     * Whether all the files and directories the generator writes exist in the schema directory
+     */
+    public boolean isGenerated() {
+        for (String fileName : outputFileNames()) {
+            if (!new File(schemaDir, fileName).exists()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MojoFailureException loadingFailure(Throwable cause) {
+        return new MojoFailureException("Error loading models from camel-catalog due " + cause.getMessage(), cause);
+    }
+
+    private List<String> catalogNames(CatalogReader catalog, String dataPath) throws MojoFailureException {
+        try {
+            return catalog.names(dataPath);
+        } catch (IOException e) {
+            throw loadingFailure(e);
+        }
+    }
+
+    private static String entryPath(String dataPath, String name) {
+        return dataPath + "/" + name + ".json";
+    }
+
+    /**
+     * Loads the given catalog entries and hands them over to the callback in catalog order.
+     * The entries are loaded a batch at a time, concurrently on a dedicated fork-join pool
+     * when more than one thread is configured, so only the entries in flight are held in memory.
+     */
+    private <T> void camelCatalogExtract(List<String> names, Function<String, T> loader,
+                                         EntryConsumer<T> callback) throws MojoFailureException, IOException {
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            int batchSize = pool != null ? parallelism * BATCH_SIZE_PER_THREAD : 1;
+            for (int from = 0; from < names.size(); from += batchSize) {
+                List<String> batch = names.subList(from, Math.min(from + batchSize, names.size()));
+                List<T> values = loadAll(pool, batch, loader);
+
+                // hand the results over in catalog order whatever order they were loaded in
+                for (int i = 0; i < batch.size(); i++) {
+                    callback.accept(batch.get(i), values.get(i));
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private <T> List<T> loadAll(ForkJoinPool pool, List<String> names, Function<String, T> loader)
         throws MojoFailureException {
-        try (URLClassLoader loader = new URLClassLoader(new URL[] { camelCatalogDir })) {
-            InputStream is = loader.getResourceAsStream(dataPath + ".properties");
-            String lines = loadText(is);
-
-            for (String name : lines.split("\n")) {
-                is = loader.getResourceAsStream(dataPath + "/" + name + ".json");
-                String text = loadText(is);
-                callback.accept(name, text);
+        try {
+            if (pool == null) {
+                return names.stream().map(loader).collect(Collectors.toList());
             }
-        } catch (Exception e) {
-            throw new MojoFailureException("Error loading models from camel-catalog due " + e.getMessage(), e);
+            return pool.submit(() -> names.parallelStream().map(loader).collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw loadingFailure(e);
+        } catch (ExecutionException e) {
+            throw loadingFailure(e.getCause());
+        } catch (RuntimeException e) {
+            throw loadingFailure(e);
+        }
+    }
+
+    private <T> T readEntry(CatalogReader catalog, String path, EntryParser<T> parser) {
+        try (Reader reader = new InputStreamReader(catalog.open(path), StandardCharsets.UTF_8)) {
+            return parser.parse(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Returns the entry recorded by the last generation when the catalog entry is unchanged
+     */
+    private GenerationManifest.Entry reusable(GenerationManifest manifest, CatalogReader catalog, String path) {
+        if (!manifest.isEnabled()) {
+            return null;
+        }
+        try {
+            return manifest.reusable(path, catalog.checksum(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the schema of a catalog entry, read back from the last generation when the
+     * entry is unchanged and parsed otherwise
+     */
+    private JsonObject resolveSchema(GenerationManifest manifest, CatalogReader catalog, String path,
+                                     String name, String groupId, String group) {
+        JsonObject schema = reusedSchema(manifest, catalog, path);
+        if (schema != null) {
+            return schema;
+        }
+        schema = readEntry(catalog, path, reader -> parseSchemaObject(name, groupId, reader,
+            property -> filter.acceptsProperty(group, name, property)).get(name).getAsJsonObject());
+        storeSchema(manifest, catalog, path, group, schema);
+        return schema;
+    }
+
+    /**
+     * Returns the schema of a catalog entry read back from the last generation, null when
+     * the entry changed or its fragment is unreadable
+     */
+    private JsonObject reusedSchema(GenerationManifest manifest, CatalogReader catalog, String path) {
+        try {
+            GenerationManifest.Entry entry = reusable(manifest, catalog, path);
+            JsonObject schema = entry != null ? manifest.loadFragment(entry) : null;
+            if (schema != null) {
+                manifest.keep(path, entry);
+            }
+            return schema;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the schema of a model found reusable up front, parsing it again when its
+     * fragment turns out to be unreadable
+     */
+    private JsonObject reusedModel(GenerationManifest manifest, CatalogReader catalog, String name) {
+        JsonObject schema = reusedSchema(manifest, catalog, entryPath(MODELS_PATH, name));
+        if (schema != null) {
+            return schema;
+        }
+        ModelEntry model = resolveModel(manifest, catalog, name);
+        if (model == null) {
+            throw new IllegalStateException("Model " + name + " is no longer part of the Camel model");
+        }
+        return model.schema;
+    }
+
+    private void storeSchema(GenerationManifest manifest, CatalogReader catalog, String path, String group,
+                             JsonObject schema) {
+        try {
+            if (manifest.isEnabled()) {
+                manifest.store(path, catalog.checksum(path), group, schema);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sorts a model into its group, by the group recorded the last time when the model is
+     * unchanged and otherwise by parsing it, the group following from its label. Returns
+     * null for the models left out by the filter, which are not read beyond their label.
+     */
+    private ModelEntry resolveModel(GenerationManifest manifest, CatalogReader catalog, String name) {
+        String path = entryPath(MODELS_PATH, name);
+        GenerationManifest.Entry entry = reusable(manifest, catalog, path);
+        if (entry != null) {
+            return new ModelEntry(entry.getGroup(), null);
+        }
+
+        Function<String, Predicate<String>> propertiesByLabel = label -> {
+            String group = modelGroup(label);
+            return filter.accepts(group, name) ? property -> filter.acceptsProperty(group, name, property) : null;
+        };
+        JsonObject schemaObject = readEntry(catalog, path,
+            reader -> parseSchemaObjectByLabel(name, "model", reader, propertiesByLabel));
+        if (schemaObject == null) {
+            return null;
+        }
+        JsonObject schema = schemaObject.get(name).getAsJsonObject();
+        String group = modelGroup(schema.get("group").getAsString());
+        storeSchema(manifest, catalog, path, group, schema);
+        return new ModelEntry(group, schema);
+    }
+
     protected void initIcons() throws MojoExecutionException {
         try {
             icons.load(CamelModelGenerator.class.getClassLoader().getResourceAsStream("icons.properties"));
@@ -171,32 +716,47 @@ public class CamelModelGenerator {
         return description;
     }
 
-    private boolean hasGroup(JsonObject model, String group) {
-        if (!model.has("group"))
-            return false;
-
-        return model.get("group").getAsString().contains(group);
+    /**
+     * Splits the models into the groups we use in camelModel.js by their label
+     */
+    private String modelGroup(String label) {
+        if (label.contains("rest")) {
+            return RESTS;
+        } else if (label.contains("dataformat")) {
+            return DATAFORMATS;
+        } else if (label.contains("language")) {
+            return LANGUAGES;
+        } else {
+            return DEFINITIONS;
+        }
     }
 
-    private String getStringValue(String name, JsonElement element) {
-        if (element == null)
-            return "";
-
-        if (element.isJsonPrimitive())
-            return element.getAsString();
-
-        throw new IllegalStateException("Element " + name + " is not a string value");
+    private String getStringValue(String name, JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+        case STRING:
+        case NUMBER:
+            return reader.nextString();
+        case BOOLEAN:
+            return Boolean.toString(reader.nextBoolean());
+        default:
+            throw new IllegalStateException("Element " + name + " is not a string value");
+        }
     }
 
-    private boolean getBooleanValue(String name, JsonElement element) {
-        if (!element.isJsonPrimitive()) {
+    private boolean getBooleanValue(String name, JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+        case BOOLEAN:
+            return reader.nextBoolean();
+        case STRING:
+        case NUMBER:
+            return Boolean.parseBoolean(reader.nextString());
+        default:
             throw new IllegalStateException("Element " + name + " is not a boolean value");
         }
-
-        return element.getAsBoolean();
     }
 
-    private JsonArray getArrayValue(String name, JsonElement element) {
+    private JsonArray getArrayValue(String name, JsonReader reader) {
+        JsonElement element = JsonParser.parseReader(reader);
         if (!element.isJsonArray()) {
             throw new IllegalStateException("Element " + name + " is not an array value");
         }
@@ -204,48 +764,190 @@ public class CamelModelGenerator {
         return element.getAsJsonArray();
     }
 
-    private JsonObject parsePropertyValue(JsonElement element) {
-        if (!element.isJsonObject()) {
+    private JsonObject parsePropertyValue(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
             return null;
         }
 
-        JsonObject source = element.getAsJsonObject();
+        String kind = "";
+        String type = "";
+        String defaultValue = null;
+        JsonArray enumValue = null;
+        String description = "";
+        String title = "";
+        Boolean required = null;
+        Boolean deprecated = null;
+
+        // only pull the fields we copy, everything else in the catalog entry is skipped
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            switch (field) {
+            case "kind":
+                kind = getStringValue(field, reader);
+                break;
+            case "type":
+                type = getStringValue(field, reader);
+                break;
+            case "defaultValue":
+                defaultValue = getStringValue(field, reader);
+                break;
+            case "enum":
+                enumValue = getArrayValue(field, reader);
+                break;
+            case "description":
+                description = getStringValue(field, reader);
+                break;
+            case "displayName":
+                title = getStringValue(field, reader);
+                break;
+            case "required":
+                required = getBooleanValue(field, reader);
+                break;
+            case "deprecated":
+                deprecated = getBooleanValue(field, reader);
+                break;
+            default:
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-        JsonObject valueObject = new JsonObject();
-        valueObject.addProperty("kind", getStringValue("kind", source.get("kind")));
-        valueObject.addProperty("type", getStringValue("type", source.get("type")));
+        if (required == null) {
+            throw new IllegalStateException("Element required is not a boolean value");
+        }
+        if (deprecated == null) {
+            throw new IllegalStateException("Element deprecated is not a boolean value");
+        }
 
-        JsonElement defaultValue = source.get("defaultValue");
+        JsonObject valueObject = new JsonObject();
+        valueObject.addProperty("kind", kind);
+        valueObject.addProperty("type", type);
         if (defaultValue != null) {
-            valueObject.addProperty("defaultValue", safeDefaultValue(getStringValue("defaultValue", defaultValue)));
+            valueObject.addProperty("defaultValue", safeDefaultValue(defaultValue));
         }
-
-        JsonElement enumValue = source.get("enum");
         if (enumValue != null) {
-            valueObject.add("enum", getArrayValue("enum", enumValue));
+            valueObject.add("enum", enumValue);
         }
-
-        valueObject.addProperty("description", safeDescription(getStringValue("description", source.get("description"))));
-        valueObject.addProperty("title", getStringValue("displayName", source.get("displayName")));
-        valueObject.addProperty("required", getBooleanValue("required", source.get("required")));
-        valueObject.addProperty("deprecated", getBooleanValue("deprecated", source.get("deprecated")));
+        valueObject.addProperty("description", safeDescription(description));
+        valueObject.addProperty("title", title);
+        valueObject.addProperty("required", required);
+        valueObject.addProperty("deprecated", deprecated);
         return valueObject;
     }
 
     protected JsonObject parseSchemaObject(String name, String groupId, String json) {
-        JsonObject jsonObject = JsonParser.parseString(json).getAsJsonObject();
-        JsonObject groupObject = jsonObject.get(groupId).getAsJsonObject();
-        JsonObject srcPropsObject = jsonObject.get("properties").getAsJsonObject();
-
-        String group = getStringValue("label", groupObject.get("label"));
-        String title = getStringValue("title", groupObject.get("title"));
-        String input = getStringValue("input", groupObject.get("input"));
-        String output = getStringValue("output", groupObject.get("output"));
+        try {
+            return parseSchemaObject(name, groupId, new StringReader(json));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Pulls the fields used by the camel model straight from the catalog entry,
+     * without building the json tree of the whole entry
+     */
+    protected JsonObject parseSchemaObject(String name, String groupId, Reader in) throws IOException {
+        return parseSchemaObject(name, groupId, in, property -> true);
+    }
+
+    /**
+     * Pulls the fields used by the camel model straight from the catalog entry, skipping
+     * the properties not accepted without parsing them
+     */
+    protected JsonObject parseSchemaObject(String name, String groupId, Reader in, Predicate<String> properties)
+        throws IOException {
+        return parseSchemaObjectByLabel(name, groupId, in, label -> properties);
+    }
+
+    /**
+     * Pulls the fields used by the camel model straight from the catalog entry, the properties
+     * to keep depending on its label. Returns null, without reading the entry any further,
+     * when there are none as the whole entry is left out.
+     */
+    private JsonObject parseSchemaObjectByLabel(String name, String groupId, Reader in,
+                                                Function<String, Predicate<String>> propertiesByLabel) throws IOException {
+        Predicate<String> properties = null;
+        String group = null;
+        String title = "";
+        String input = "";
+        String output = "";
+        String description = "";
+        JsonObject propsObject = null;
+
+        JsonReader reader = new JsonReader(in);
+        reader.setLenient(true);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (groupId.equals(key)) {
+                group = "";
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    switch (field) {
+                    case "label":
+                        group = getStringValue(field, reader);
+                        break;
+                    case "title":
+                        title = getStringValue(field, reader);
+                        break;
+                    case "input":
+                        input = getStringValue(field, reader);
+                        break;
+                    case "output":
+                        output = getStringValue(field, reader);
+                        break;
+                    case "description":
+                        description = getStringValue(field, reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                properties = propertiesByLabel.apply(group);
+                if (properties == null) {
+                    return null;
+                }
+            } else if ("properties".equals(key)) {
+                propsObject = new JsonObject();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String property = reader.nextName();
+                    if (properties != null && !properties.test(property)) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    JsonObject value = parsePropertyValue(reader);
+                    if (value == null)
+                        continue;
+
+                    propsObject.add(property, value);
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (group == null) {
+            throw new IllegalStateException("Element " + groupId + " is missing from " + name);
+        }
+        if (propsObject == null) {
+            throw new IllegalStateException("Element properties is missing from " + name);
+        }
+        // the properties coming before the label could only be filtered once it was read
+        Predicate<String> accepted = properties;
+        propsObject.keySet().removeIf(property -> !accepted.test(property));
+
         String nextSiblingAddedAsChild = "false";
         if ("true".equals(input) && "false".equals(output)) {
             nextSiblingAddedAsChild = "true";
         }
-        String description = getStringValue("description", groupObject.get("description"));
         String icon = findIcon(name);
 
         JsonObject contentObject = new JsonObject();
@@ -262,16 +964,6 @@ public class CamelModelGenerator {
             contentObject.addProperty("nextSiblingAddedAsChild", nextSiblingAddedAsChild);
         }
 
-        JsonObject propsObject = new JsonObject();
-
-        for (Map.Entry<String, JsonElement> property : srcPropsObject.asMap().entrySet()) {
-            JsonObject value = parsePropertyValue(property.getValue());
-            if (value == null)
-                continue;
-
-            propsObject.add(property.getKey(), value);
-        }
-
         contentObject.add("properties", propsObject);
         JsonObject schemaObject = new JsonObject();
         schemaObject.add(name, contentObject);
@@ -280,7 +972,7 @@ public class CamelModelGenerator {
 
     }
 
-    private void generationExpression(JsonObject target, Set<String> languages) {
+    private JsonObject generateExpression(Set<String> languages) {
 
         JsonArray enumArray = new JsonArray();
         for (String language : languages) {
@@ -290,6 +982,7 @@ public class CamelModelGenerator {
             }
         }
 
+        JsonObject target = new JsonObject();
         target.addProperty("type", "object");
         target.addProperty("title", "expression");
         target.addProperty("group", "language");
@@ -317,107 +1010,427 @@ public class CamelModelGenerator {
         properties.add("expression", expressionProp);
         properties.add("language", langProp);
         target.add("properties", properties);
+        return target;
     }
 
-    private JsonObject generateGroupSchema(String name, Map<String, JsonObject> content) {
-        JsonObject schema = new JsonObject();
-        JsonObject schemaContent = new JsonObject();
-        for (Map.Entry<String, JsonObject> child : content.entrySet()) {
-            schemaContent.add(child.getKey(), child.getValue());
+    private GroupSchemaWriter openWriter(Set<String> changedGroups, String group) throws IOException {
+        if (!changedGroups.contains(group)) {
+            return null;
         }
-        schema.add(name, schemaContent);
-        return schema;
+        GroupSchemaWriter.Options options = new GroupSchemaWriter.Options()
+            .compress(compress)
+            .deduplicate(deduplicate)
+            .shard(shard)
+            .splitDocs(splitDocs, splitTitles)
+            .binary(binary);
+        return new GroupSchemaWriter(gson, schemaDir, group, options);
     }
 
-    private void writeToFile(String name, JsonObject modelObject) throws IOException {
-        FileWriter writer = new FileWriter(schemaDir + File.separator + name + "-camel-model.json");
-        gson.toJson(modelObject, writer);
-        writer.close();
+    public void generate() throws MojoFailureException, MojoExecutionException {
+        if (cache == null) {
+            generateModels();
+            return;
+        }
+
+        String key = null;
+        try {
+            key = cacheKey();
+            if (cache.restore(key, schemaDir, outputFileNames(), staleFileNames())) {
+                // the group files no longer are those the manifest describes
+                if (workDir != null) {
+                    GenerationManifest.discard(workDir);
+                }
+                getLog().info("Restored Camel models from cache " + cache.getDir() + " into schema directory: " + schemaDir);
+                return;
+            }
+        } catch (IOException e) {
+            getLog().warn("Cannot read the Camel model cache " + cache.getDir() + ": " + e.getMessage());
+        }
+
+        generateModels();
+
+        if (key == null) {
+            return;
+        }
+        try {
+            cache.store(key, schemaDir, outputFileNames());
+            cache.evict(getLog());
+        } catch (IOException e) {
+            // the models are generated, only the next projects miss out on the cache
+            getLog().warn("Cannot store the Camel models in cache " + cache.getDir() + ": " + e.getMessage());
+        }
     }
 
-    public void generate() throws MojoFailureException, MojoExecutionException {
+    private void generateModels() throws MojoFailureException, MojoExecutionException {
 
         initIcons();
 
-        NameSchemaPair definitions = new NameSchemaPair("definitions");
-        definitions.addGroupSchema("expression", new JsonObject()); // initialise the expression in the correct location
+        CatalogReader catalog;
+        try {
+            catalog = CatalogReader.open(camelCatalogDir);
+        } catch (IOException e) {
+            throw loadingFailure(e);
+        }
 
-        NameSchemaPair rests = new NameSchemaPair("rests");
-        NameSchemaPair dataformats = new NameSchemaPair("dataformats");
-        NameSchemaPair languages = new NameSchemaPair("languages");
-        NameSchemaPair components = new NameSchemaPair("components");
+        try (catalog) {
+            if (!schemaDir.isDirectory() && !schemaDir.mkdirs())
+                throw new IllegalStateException("Cannot create output directory for camel models");
 
-        // find the model json files and split into groups
-        URL ccDir;
-        try {
-            ccDir = new URL("file", null, camelCatalogDir.getAbsolutePath());
-        } catch (MalformedURLException ex) {
-            throw new MojoFailureException("Error loading models from camel-catalog due " + ex.getMessage(), ex);
-        }
-
-        camelCatalogExtract(ccDir, "org/apache/camel/catalog/models", (String name, String text) -> {
-            // use the model files to split into the groups we use in camelModel.js
-            JsonObject schema = parseSchemaObject(name, "model", text);
-            JsonObject schemaContent = schema.get(name).getAsJsonObject();
-            if (hasGroup(schemaContent, "rest")) {
-                rests.addGroupSchema(name, schemaContent);
-            } else if (hasGroup(schemaContent, "dataformat")) {
-                dataformats.addGroupSchema(name, schemaContent);
-            } else if (hasGroup(schemaContent, "language")) {
-                languages.addGroupSchema(name, schemaContent);
-            } else {
-                definitions.addGroupSchema(name, schemaContent);
-            }
-        });
+            // the group files and fragments kept from the last time must have been written the same way
+            String generator = new Fingerprint().add(generatorFingerprint()).add(outputSettings()).value();
+            GenerationManifest manifest = workDir != null
+                ? GenerationManifest.load(workDir, generator)
+                : GenerationManifest.disabled();
 
-        camelCatalogExtract(ccDir, "org/apache/camel/catalog/components", (String name, String text) -> {
-            JsonObject schema = parseSchemaObject(name, "component", text);
-            JsonObject schemaContent = schema.get(name).getAsJsonObject();
-            components.addGroupSchema(name, schemaContent);
-        });
+            List<String> modelNames = catalogNames(catalog, MODELS_PATH);
+            List<String> componentNames = catalogNames(catalog, COMPONENTS_PATH).stream()
+                .filter(name -> filter.accepts(COMPONENTS, name))
+                .collect(Collectors.toList());
 
-        if (definitions.isEmpty()) {
+            /*
+             * The expression leads the definitions and lists all the languages, so the
+             * models are split into their groups up front to know the languages before
+             * any model gets written. The models parsed for it are spooled until then.
+             */
+            Map<String, String> modelGroups = new LinkedHashMap<>();
+            Set<String> spooledModels = new HashSet<>();
+            Path spool = Files.createTempFile("camel-models", ".json");
+            try {
+                try (JsonWriter spoolWriter = new JsonWriter(Files.newBufferedWriter(spool, StandardCharsets.UTF_8))) {
+                    spoolWriter.beginObject();
+                    camelCatalogExtract(modelNames, name -> resolveModel(manifest, catalog, name), (name, model) -> {
+                        // the models left out by the filter are only known once their label is read
+                        if (model == null || !filter.accepts(model.group, name)) {
+                            return;
+                        }
+                        modelGroups.put(name, model.group);
+                        if (model.schema != null) {
+                            spoolWriter.name(name);
+                            gson.toJson(model.schema, spoolWriter);
+                            spooledModels.add(name);
+                        }
+                    });
+                    spoolWriter.endObject();
+                }
+
+                try (JsonReader spoolReader = new JsonReader(Files.newBufferedReader(spool, StandardCharsets.UTF_8))) {
+                    spoolReader.beginObject();
+                    writeModels(manifest, catalog, modelNames, modelGroups, spooledModels, spoolReader, componentNames);
+                }
+            } finally {
+                Files.deleteIfExists(spool);
+            }
+        } catch (MojoFailureException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MojoFailureException("Error writing model files to schema directory " + schemaDir + ": " + e, e);
+        }
+    }
+
+    /**
+     * Writes the groups holding an entry that changed, and the model file importing them.
+     * The models parsed to sort them into their groups are read back from the spool, in
+     * catalog order, while the others are read back from the last generation.
+     */
+    private void writeModels(GenerationManifest manifest, CatalogReader catalog, List<String> modelNames,
+                             Map<String, String> modelGroups, Set<String> spooledModels, JsonReader spoolReader,
+                             List<String> componentNames) throws MojoFailureException, IOException {
+        if (modelGroups.isEmpty()) {
             getLog().info("Cannot update " + schemaDir + " as no Camel models found in the Apache Camel version");
             return;
         }
 
-        /*
-         * Generate expression
-         */
-        generationExpression(definitions.getGroupSchema("expression"), languages.getGroups());
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (String group : GROUPS) {
+            groups.put(group, new ArrayList<>());
+        }
+        modelGroups.forEach((name, group) -> groups.get(group).add(name));
+        groups.get(COMPONENTS).addAll(componentNames);
 
-        try {
-            if (!schemaDir.isDirectory() && !schemaDir.mkdirs())
-                throw new IllegalStateException("Cannot create output directory for camel models");
+        Set<String> changedGroups = changedGroups(manifest, catalog, groups);
+        if (!changedGroups.isEmpty()) {
+            manifest.invalidate();
+        }
 
-            List<NameSchemaPair> pairs = new ArrayList<>();
-            pairs.add(definitions);
-            pairs.add(rests);
-            pairs.add(dataformats);
-            pairs.add(languages);
-            pairs.add(components);
+        try (GroupSchemaWriter definitions = openWriter(changedGroups, DEFINITIONS);
+             GroupSchemaWriter rests = openWriter(changedGroups, RESTS);
+             GroupSchemaWriter dataformats = openWriter(changedGroups, DATAFORMATS);
+             GroupSchemaWriter languages = openWriter(changedGroups, LANGUAGES)) {
 
             /*
-             * Create model file for import
+             * Generate expression
              */
-            FileWriter writer = new FileWriter(schemaDir + File.separator + schemaFileName);
+            if (definitions != null && filter.accepts(DEFINITIONS, "expression")) {
+                definitions.add("expression", generateExpression(new LinkedHashSet<>(groups.get(LANGUAGES))));
+            }
 
-            for (NameSchemaPair pair : pairs) {
-                JsonObject jsonObject = generateGroupSchema(pair.getName(), pair.getSchema());
-                writeToFile(pair.getName(), jsonObject); // write to json file
+            Map<String, GroupSchemaWriter> modelWriters = new HashMap<>();
+            modelWriters.put(DEFINITIONS, definitions);
+            modelWriters.put(RESTS, rests);
+            modelWriters.put(DATAFORMATS, dataformats);
+            modelWriters.put(LANGUAGES, languages);
+
+            List<String> changedModels = modelNames.stream()
+                .filter(name -> changedGroups.contains(modelGroups.get(name)))
+                .collect(Collectors.toList());
+            camelCatalogExtract(changedModels,
+                name -> spooledModels.contains(name)
+                    ? null : reusedModel(manifest, catalog, name),
+                (name, schemaContent) -> modelWriters.get(modelGroups.get(name))
+                    .add(name, schemaContent != null ? schemaContent : readSpooled(spoolReader, name)));
+
+            commit(definitions, rests, dataformats, languages);
+        }
 
-                writer.write("import { " + pair.getName() + " } from './" + pair.getName() + "-camel-model.json';\n");
+        try (GroupSchemaWriter components = openWriter(changedGroups, COMPONENTS)) {
+            if (components != null) {
+                camelCatalogExtract(componentNames,
+                    name -> resolveSchema(manifest, catalog, entryPath(COMPONENTS_PATH, name), name, "component", COMPONENTS),
+                    components::add);
+                components.commit();
             }
+        }
 
-            writer.write("\nvar apacheCamelModelVersion = '" + getVersion() + "';\n\n");
+        /*
+         * Create model file for import
+         */
+        StringBuilder modelFile = new StringBuilder();
+        if (lazy) {
+            appendLazyLoaders(modelFile, groups);
+        } else if (deduplicate) {
+            appendResolvingImports(modelFile);
+        } else {
+            for (String group : GROUPS) {
+                modelFile.append("import { " + group + " } from './" + GroupSchemaWriter.fileName(group) + "';\n");
+            }
+        }
 
-            writer.write(String.format("export { %s, %s, %s, %s, %s, apacheCamelModelVersion };\n", definitions, rests, dataformats, languages, components));
-            writer.close();
+        if (splitDocs) {
+            modelFile.append("\n");
+            appendDocsLoader(modelFile);
+        }
 
-        } catch (Exception e) {
-            throw new MojoFailureException("Error writing model files to schema directory " + schemaDir + ": " + e);
+        modelFile.append("\nvar apacheCamelModelVersion = '" + getVersion() + "';\n\n");
+
+        List<String> exports = new ArrayList<>();
+        if (lazy) {
+            GROUPS.forEach(group -> exports.add(loaderName(group)));
+            exports.add("loadCamelModel");
+            exports.add("camelModelSummary");
+        } else {
+            exports.addAll(GROUPS);
+        }
+        if (splitDocs) {
+            exports.add("loadDocs");
+            exports.add("mergeDocs");
+        }
+        exports.add("apacheCamelModelVersion");
+        modelFile.append(String.format("export { %s };\n", String.join(", ", exports)));
+        writeIfChanged(new File(schemaDir, schemaFileName), modelFile.toString());
+
+        manifest.save(groups);
+
+        if (changedGroups.isEmpty()) {
+            getLog().info("Camel models are up to date");
+        } else if (changedGroups.size() < GROUPS.size()) {
+            getLog().info("Regenerated Camel model groups " + changedGroups + ", the others are up to date");
         }
 
         getLog().info("Assembled Camel models into schema directory: " + schemaDir);
     }
+
+    /**
+     * Reads back the next model of the spool, which has to be the given one
+     */
+    private JsonObject readSpooled(JsonReader spoolReader, String name) throws IOException {
+        String spooled = spoolReader.nextName();
+        if (!name.equals(spooled)) {
+            throw new IllegalStateException("Expected model " + name + " in the spool but found " + spooled);
+        }
+        return JsonParser.parseReader(spoolReader).getAsJsonObject();
+    }
+
+    /**
+     * Moves the files of the groups written into place, once all of them are complete
+     */
+    private void commit(GroupSchemaWriter... writers) throws IOException {
+        for (GroupSchemaWriter writer : writers) {
+            if (writer != null) {
+                writer.commit();
+            }
+        }
+    }
+
+    /**
+     * Works out the groups to write: those whose files are missing, which are made of other
+     * entries than the last time or which hold an entry that changed. The definitions also
+     * change along with the languages as they hold the expression listing them.
+     */
+    private Set<String> changedGroups(GenerationManifest manifest, CatalogReader catalog,
+                                      Map<String, List<String>> groups) throws MojoFailureException, IOException {
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            boolean missing = false;
+            for (String fileName : groupFileNames(group.getKey())) {
+                missing |= !new File(schemaDir, fileName).exists();
+            }
+            if (missing || manifest.isChanged(group.getKey(), group.getValue())) {
+                changed.add(group.getKey());
+            }
+        }
+        if (changed.contains(LANGUAGES)) {
+            changed.add(DEFINITIONS);
+        }
+
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            if (changed.contains(group.getKey())) {
+                continue;
+            }
+            String dataPath = COMPONENTS.equals(group.getKey()) ? COMPONENTS_PATH : MODELS_PATH;
+            List<GenerationManifest.Entry> entries = new ArrayList<>();
+            camelCatalogExtract(group.getValue(), name -> reusable(manifest, catalog, entryPath(dataPath, name)),
+                (name, entry) -> entries.add(entry));
+            if (entries.contains(null)) {
+                changed.add(group.getKey());
+                continue;
+            }
+            // the group is kept as it is, so are its entries
+            for (int i = 0; i < entries.size(); i++) {
+                manifest.keep(entryPath(dataPath, group.getValue().get(i)), entries.get(i));
+            }
+        }
+
+        // keep the groups in the order of the camel model
+        Set<String> ordered = new LinkedHashSet<>(GROUPS);
+        ordered.retainAll(changed);
+        return ordered;
+    }
+
+    /**
+     * Declares a loader per group, importing its json file on the first call only, and
+     * the summary of the entries of every group which is all the script holds up front.
+     * The paths given to <tt>import()</tt> are literals for bundlers to split them out.
+     */
+    private void appendLazyLoaders(StringBuilder modelFile, Map<String, List<String>> groups) {
+        JsonObject summary = new JsonObject();
+        for (String group : GROUPS) {
+            JsonArray names = new JsonArray();
+            if (DEFINITIONS.equals(group) && filter.accepts(DEFINITIONS, "expression")) {
+                names.add("expression");
+            }
+            groups.get(group).forEach(names::add);
+            summary.add(group, names);
+        }
+        modelFile.append("var camelModelSummary = " + summary + ";\n\n");
+
+        if (deduplicate) {
+            appendResolveFunction(modelFile);
+        }
+        modelFile.append("var loadedGroups = {};\n\n");
+        modelFile.append("function loadGroup(group, importGroup) {\n");
+        modelFile.append("  if (!loadedGroups[group]) {\n");
+        modelFile.append("    loadedGroups[group] = importGroup().then(module => {\n");
+        modelFile.append("      const json = module.default || module;\n");
+        if (deduplicate) {
+            modelFile.append("      return resolveSharedProperties(json[group], json['" + GroupSchemaWriter.SHARED_PROPERTIES + "']);\n");
+        } else {
+            modelFile.append("      return json[group];\n");
+        }
+        modelFile.append("    });\n");
+        modelFile.append("  }\n");
+        modelFile.append("  return loadedGroups[group];\n");
+        modelFile.append("}\n\n");
+
+        for (String group : GROUPS) {
+            modelFile.append("function " + loaderName(group) + "() {\n");
+            modelFile.append("  return loadGroup('" + group + "', () => import('./" + GroupSchemaWriter.fileName(group) + "'));\n");
+            modelFile.append("}\n\n");
+        }
+
+        modelFile.append("function loadCamelModel() {\n");
+        modelFile.append("  return Promise.all([" + GROUPS.stream().map(group -> loaderName(group) + "()")
+            .collect(Collectors.joining(", ")) + "])\n");
+        modelFile.append("    .then(([" + String.join(", ", GROUPS) + "]) => ({ " + String.join(", ", GROUPS) + " }));\n");
+        modelFile.append("}\n");
+    }
+
+    /**
+     * Declares the function loading the docs split out of a group and the one merging
+     * them back into the entries of the group
+     */
+    private void appendDocsLoader(StringBuilder modelFile) {
+        modelFile.append("var docsImports = {\n");
+        for (String group : GROUPS) {
+            modelFile.append("  " + group + ": () => import('./" + GroupSchemaWriter.docsFileName(group) + "'),\n");
+        }
+        modelFile.append("};\n\n");
+
+        modelFile.append("function loadDocs(group) {\n");
+        modelFile.append("  return docsImports[group]().then(module => (module.default || module)[group]);\n");
+        modelFile.append("}\n\n");
+
+        modelFile.append("function mergeDocs(models, docs) {\n");
+        modelFile.append("  for (const [name, model] of Object.entries(models)) {\n");
+        modelFile.append("    const { properties: propertyDocs, ...modelDocs } = docs[name] || {};\n");
+        modelFile.append("    Object.assign(model, modelDocs);\n");
+        modelFile.append("    const properties = model.properties || {};\n");
+        modelFile.append("    for (const [property, descriptor] of Object.entries(properties)) {\n");
+        modelFile.append("      if (propertyDocs && propertyDocs[property]) {\n");
+        modelFile.append("        // the descriptors may be shared between the properties\n");
+        modelFile.append("        properties[property] = Object.assign({}, descriptor, propertyDocs[property]);\n");
+        modelFile.append("      }\n");
+        modelFile.append("    }\n");
+        modelFile.append("  }\n");
+        modelFile.append("  return models;\n");
+        modelFile.append("}\n");
+    }
+
+    private static String loaderName(String group) {
+        return "load" + Character.toUpperCase(group.charAt(0)) + group.substring(1);
+    }
+
+    /**
+     * Imports the groups along with their shared property descriptors, and puts the
+     * descriptors back in place of the references to them so the exported models look
+     * the same as without deduplication
+     */
+    private void appendResolvingImports(StringBuilder modelFile) {
+        String shared = GroupSchemaWriter.SHARED_PROPERTIES;
+        for (String group : GROUPS) {
+            modelFile.append("import { " + group + " as " + group + "Refs, " + shared + " as " + group + "Shared } from './"
+                + GroupSchemaWriter.fileName(group) + "';\n");
+        }
+
+        modelFile.append("\n");
+        appendResolveFunction(modelFile);
+
+        for (String group : GROUPS) {
+            modelFile.append("var " + group + " = resolveSharedProperties(" + group + "Refs, " + group + "Shared);\n");
+        }
+    }
+
+    /**
+     * Declares the function putting the shared property descriptors in place of the references
+     */
+    private void appendResolveFunction(StringBuilder modelFile) {
+        String shared = GroupSchemaWriter.SHARED_PROPERTIES;
+        modelFile.append("function resolveSharedProperties(models, shared) {\n");
+        modelFile.append("  for (const model of Object.values(models)) {\n");
+        modelFile.append("    const properties = model.properties || {};\n");
+        modelFile.append("    for (const [name, property] of Object.entries(properties)) {\n");
+        modelFile.append("      if (property['$ref']) {\n");
+        modelFile.append("        properties[name] = shared[property['$ref'].substring('#/" + shared + "/'.length)];\n");
+        modelFile.append("      }\n");
+        modelFile.append("    }\n");
+        modelFile.append("  }\n");
+        modelFile.append("  return models;\n");
+        modelFile.append("}\n\n");
+    }
+
+    private void writeIfChanged(File file, String content) throws IOException {
+        if (file.isFile() && content.equals(Files.readString(file.toPath()))) {
+            return;
+        }
+        Files.writeString(file.toPath(), content);
+    }
 }
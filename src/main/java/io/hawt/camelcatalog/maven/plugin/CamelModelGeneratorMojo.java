@@ -1,9 +1,16 @@
 package io.hawt.camelcatalog.maven.plugin;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
+import io.hawt.camelcatalog.maven.plugin.util.Fingerprint;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -16,7 +23,7 @@ import org.apache.maven.project.MavenProject;
  * To generate camelModel.js from the Apache Camel release
  */
 @Mojo(name = "generate-camel-model", defaultPhase = LifecyclePhase.GENERATE_SOURCES,
-    requiresDependencyResolution = ResolutionScope.COMPILE)
+    requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
 public class CamelModelGeneratorMojo extends AbstractMojo {
 
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
@@ -31,6 +38,133 @@ public class CamelModelGeneratorMojo extends AbstractMojo {
     @Parameter(defaultValue = "camel-model.js")
     protected String schemaFileName;
 
+    /**
+     * Number of threads used to parse the catalog entries. 1 parses them sequentially
+     * and 0 uses as many threads as there are available processors.
+     */
+    @Parameter(defaultValue = "1")
+    protected int parallelism;
+
+    /**
+     * Skips the generation when the camel-catalog, the plugin version and the configuration
+     * are unchanged since the last run and the generated files are still in place. Otherwise
+     * only the catalog entries that changed are parsed again and only the files holding them
+     * are rewritten. Off by default, so that existing builds keep generating every time.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean incremental;
+
+    /**
+     * Directory of a cache of generated models shared by all the projects using the same
+     * Camel catalog version. The cache is not used when not set.
+     */
+    @Parameter
+    protected File cacheDir;
+
+    /**
+     * Number of days a cached model is kept after it was last used
+     */
+    @Parameter(defaultValue = "30")
+    protected int cacheMaxAge;
+
+    /**
+     * Maximum size of the cache in megabytes, beyond which the least recently used models are evicted
+     */
+    @Parameter(defaultValue = "256")
+    protected long cacheMaxSize;
+
+    /**
+     * Writes the json files on a single line instead of pretty printing them
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean compact;
+
+    /**
+     * Writes a gzip compressed <tt>.json.gz</tt> copy of each json file next to it, for web
+     * servers to serve without compressing the files on every request
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean compress;
+
+    /**
+     * Writes the property descriptors used by several entries of a group once into a shared
+     * <tt>$defs</tt> table of its json file, the entries referring to them with <tt>$ref</tt>.
+     * The generated model script resolves the references when imported.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean deduplicate;
+
+    /**
+     * Also writes each catalog entry to its own file in a <tt>&lt;group&gt;-camel-model</tt>
+     * directory, along with a <tt>&lt;group&gt;-camel-model-index.json</tt> listing the name,
+     * title, group, icon and file of every entry, for clients to load the entries lazily
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean shard;
+
+    /**
+     * Generates a model script exporting an async loader per group, built on dynamic
+     * <tt>import()</tt>, and a summary of the entries of the groups, instead of importing
+     * all the groups up front
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean lazy;
+
+    /**
+     * Moves the descriptions of the entries and of their properties out of the group files
+     * into <tt>&lt;group&gt;-camel-model-docs.json</tt> files, which the model script loads
+     * and merges back on demand
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean splitDocs;
+
+    /**
+     * Moves the titles into the docs files as well, when splitting the docs
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean splitTitles;
+
+    /**
+     * Also writes each group file in the binary CBOR format, into a
+     * <tt>&lt;group&gt;-camel-model.cbor</tt> file next to it
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean binary;
+
+    /**
+     * Patterns of the entries to generate per group, keyed by <tt>definitions</tt>,
+     * <tt>rests</tt>, <tt>dataformats</tt>, <tt>languages</tt> or <tt>components</tt>.
+     * The patterns are separated by commas, <tt>*</tt> standing for any characters.
+     * All the entries of the groups without patterns are generated.
+     */
+    @Parameter
+    protected Map<String, String> includes;
+
+    /**
+     * Patterns of the entries left out per group, in the same form as the includes
+     */
+    @Parameter
+    protected Map<String, String> excludes;
+
+    /**
+     * Patterns of the properties to generate per group, matched against the name of the
+     * property or, for the patterns holding a dot, against <tt>&lt;entry&gt;.&lt;property&gt;</tt>
+     */
+    @Parameter
+    protected Map<String, String> propertyIncludes;
+
+    /**
+     * Patterns of the properties left out per group, in the same form as the property includes
+     */
+    @Parameter
+    protected Map<String, String> propertyExcludes;
+
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    protected String pluginVersion;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    protected MojoExecution execution;
+
     /**
      * Execute goal.
      */
@@ -50,7 +184,87 @@ public class CamelModelGeneratorMojo extends AbstractMojo {
 
         CamelModelGenerator generator = new CamelModelGenerator(getLog(), camelCatalog.getVersion(),
             camelCatalog.getFile(), schemaDir, schemaFileName);
+        generator.setPluginVersion(pluginVersion);
+        generator.setParallelism(parallelism);
+        generator.setCompact(compact);
+        generator.setCompress(compress);
+        generator.setDeduplicate(deduplicate);
+        generator.setShard(shard);
+        generator.setLazy(lazy);
+        generator.setSplitDocs(splitDocs);
+        generator.setSplitTitles(splitTitles);
+        generator.setBinary(binary);
+        try {
+            generator.setFilter(filter());
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        if (cacheDir != null) {
+            generator.setCache(new ModelCache(cacheDir, TimeUnit.DAYS.toMillis(cacheMaxAge), cacheMaxSize * 1024 * 1024));
+        }
+
+        File workDir = new File(buildDir, "camel-model-" + execution.getExecutionId());
+        File fingerprintFile = new File(workDir, "fingerprint");
+        String fingerprint = null;
+        if (incremental) {
+            generator.setWorkDir(workDir);
+            fingerprint = fingerprint(generator);
+            if (generator.isGenerated() && fingerprint.equals(readFingerprint(fingerprintFile))) {
+                getLog().info("Camel models are up to date in schema directory: " + schemaDir);
+                return;
+            }
+        }
+
         generator.generate();
+
+        if (fingerprint != null) {
+            writeFingerprint(fingerprintFile, fingerprint);
+        }
+    }
+
+    private CatalogFilter filter() {
+        CatalogFilter filter = new CatalogFilter();
+        forEach(includes, filter::include);
+        forEach(excludes, filter::exclude);
+        forEach(propertyIncludes, filter::includeProperties);
+        forEach(propertyExcludes, filter::excludeProperties);
+        return filter;
+    }
+
+    private static void forEach(Map<String, String> patterns, BiConsumer<String, String> action) {
+        if (patterns != null) {
+            patterns.forEach(action);
+        }
+    }
+
+    private String fingerprint(CamelModelGenerator generator) throws MojoExecutionException {
+        try {
+            return new Fingerprint()
+                .add(pluginVersion)
+                .add(generator.fingerprint())
+                .value();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot fingerprint the Camel Catalog", e);
+        }
+    }
+
+    private String readFingerprint(File file) {
+        try {
+            return file.isFile() ? Files.readString(file.toPath()) : null;
+        } catch (IOException e) {
+            getLog().debug("Cannot read " + file + ", regenerating the camel models", e);
+            return null;
+        }
+    }
+
+    private void writeFingerprint(File file, String fingerprint) {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.writeString(file.toPath(), fingerprint);
+        } catch (IOException e) {
+            // only costs a regeneration next time
+            getLog().warn("Cannot write " + file + ": " + e.getMessage());
+        }
     }
 
     private static Artifact findCamelCatalogArtifact(MavenProject project) {
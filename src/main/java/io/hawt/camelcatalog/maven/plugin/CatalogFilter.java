@@ -0,0 +1,131 @@
+package io.hawt.camelcatalog.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the catalog entries, and optionally their properties, that make it into the
+ * camel model. The entries of a group are matched by name against the include patterns
+ * of the group, all of them being kept when it has none, then against its exclude
+ * patterns. The properties are matched the same way, by name or, for the patterns
+ * holding a dot, as <tt>&lt;entry&gt;.&lt;property&gt;</tt>.
+ * <p/>
+ * The patterns are separated by commas or whitespace, <tt>*</tt> standing for any
+ * characters and <tt>?</tt> for a single one.
+ */
+public class CatalogFilter {
+
+    private final Map<String, List<String>> includes = new TreeMap<>();
+
+    private final Map<String, List<String>> excludes = new TreeMap<>();
+
+    private final Map<String, List<String>> propertyIncludes = new TreeMap<>();
+
+    private final Map<String, List<String>> propertyExcludes = new TreeMap<>();
+
+    private final Map<String, Pattern> compiled = new TreeMap<>();
+
+    public CatalogFilter include(String group, String patterns) {
+        return add(includes, group, patterns);
+    }
+
+    public CatalogFilter exclude(String group, String patterns) {
+        return add(excludes, group, patterns);
+    }
+
+    public CatalogFilter includeProperties(String group, String patterns) {
+        return add(propertyIncludes, group, patterns);
+    }
+
+    public CatalogFilter excludeProperties(String group, String patterns) {
+        return add(propertyExcludes, group, patterns);
+    }
+
+    /**
+     * Whether the filter keeps everything
+     */
+    public boolean isEmpty() {
+        return includes.isEmpty() && excludes.isEmpty() && propertyIncludes.isEmpty() && propertyExcludes.isEmpty();
+    }
+
+    /**
+     * Names of the groups the filter has patterns for
+     */
+    public Set<String> getGroups() {
+        Set<String> groups = new TreeSet<>(includes.keySet());
+        groups.addAll(excludes.keySet());
+        groups.addAll(propertyIncludes.keySet());
+        groups.addAll(propertyExcludes.keySet());
+        return groups;
+    }
+
+    /**
+     * Whether the entry of the group is kept
+     */
+    public boolean accepts(String group, String name) {
+        return accepts(includes.get(group), excludes.get(group), name, name);
+    }
+
+    /**
+     * Whether the property of the entry of the group is kept
+     */
+    public boolean acceptsProperty(String group, String entry, String property) {
+        return accepts(propertyIncludes.get(group), propertyExcludes.get(group), property, entry + "." + property);
+    }
+
+    private boolean accepts(List<String> include, List<String> exclude, String name, String qualifiedName) {
+        if (include != null && !matches(include, name, qualifiedName)) {
+            return false;
+        }
+        return exclude == null || !matches(exclude, name, qualifiedName);
+    }
+
+    private boolean matches(List<String> patterns, String name, String qualifiedName) {
+        for (String pattern : patterns) {
+            String value = pattern.indexOf('.') >= 0 ? qualifiedName : name;
+            if (compiled.get(pattern).matcher(value).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CatalogFilter add(Map<String, List<String>> filters, String group, String patterns) {
+        for (String pattern : patterns.split("[,\\s]+")) {
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            filters.computeIfAbsent(group, key -> new ArrayList<>()).add(pattern);
+            compiled.computeIfAbsent(pattern, CatalogFilter::compile);
+        }
+        return this;
+    }
+
+    private static Pattern compile(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (String literal : glob.split("(?=[*?])|(?<=[*?])")) {
+            if ("*".equals(literal)) {
+                regex.append(".*");
+            } else if ("?".equals(literal)) {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(literal));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Describes all the patterns, identifying the filter in the fingerprints of the generation
+     */
+    @Override
+    public String toString() {
+        return "includes=" + includes + ",excludes=" + excludes
+            + ",propertyIncludes=" + propertyIncludes + ",propertyExcludes=" + propertyExcludes;
+    }
+}
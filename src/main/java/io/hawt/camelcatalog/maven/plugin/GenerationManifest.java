@@ -0,0 +1,227 @@
+package io.hawt.camelcatalog.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import io.hawt.camelcatalog.maven.plugin.util.Fingerprint;
+
+/**
+ * Records, for every catalog entry, the checksum of its source json and the hash of the
+ * schema generated from it, together with the entries making up each group of the camel
+ * model. A later generation only has to parse the entries whose source changed and to
+ * rewrite the groups holding them; the schemas of all the other entries are read back from
+ * the fragments kept next to the manifest, named after their hash.
+ */
+class GenerationManifest {
+
+    private static final String MANIFEST_FILE = "manifest.json";
+
+    private static final String FRAGMENTS_DIR = "fragments";
+
+    static class Entry {
+        private final String source;
+        private final String fragment;
+        private final String group;
+
+        Entry(String source, String fragment, String group) {
+            this.source = source;
+            this.fragment = fragment;
+            this.group = group;
+        }
+
+        String getGroup() {
+            return group;
+        }
+    }
+
+    private static class Content {
+        private String generator;
+        private Map<String, Entry> entries = new TreeMap<>();
+        private Map<String, List<String>> groups = new LinkedHashMap<>();
+    }
+
+    private static final Gson GSON = new Gson();
+
+    private final File dir;
+
+    private final String generator;
+
+    private final Content previous;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private GenerationManifest(File dir, String generator, Content previous) {
+        this.dir = dir;
+        this.generator = generator;
+        this.previous = previous;
+    }
+
+    /**
+     * A manifest that never reuses anything and records nothing, so every group gets generated
+     */
+    static GenerationManifest disabled() {
+        return new GenerationManifest(null, null, new Content());
+    }
+
+    /**
+     * Loads the manifest kept in the given directory. Nothing is reused when there is
+     * none yet or when it was recorded by a different generator.
+     */
+    static GenerationManifest load(File dir, String generator) {
+        Content previous = null;
+        File file = new File(dir, MANIFEST_FILE);
+        if (file.isFile()) {
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                previous = GSON.fromJson(reader, Content.class);
+            } catch (IOException | JsonParseException e) {
+                // regenerate everything
+            }
+        }
+        if (previous == null || !generator.equals(previous.generator)) {
+            previous = new Content();
+        }
+        return new GenerationManifest(dir, generator, previous);
+    }
+
+    boolean isEnabled() {
+        return dir != null;
+    }
+
+    /**
+     * Returns the previous entry when its source is unchanged and its fragment is still
+     * available, null when the entry has to be generated again
+     */
+    Entry reusable(String key, String source) {
+        Entry entry = previous.entries.get(key);
+        if (entry == null || !entry.source.equals(source) || !fragmentFile(entry.fragment).isFile()) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Whether the group is made of other entries than the last time
+     */
+    boolean isChanged(String group, List<String> names) {
+        return !names.equals(previous.groups.get(group));
+    }
+
+    /**
+     * Records an entry reused from the previous generation
+     */
+    void keep(String key, Entry entry) {
+        if (isEnabled()) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Reads the schema of a reusable entry back from its fragment
+     *
+     * @return null when the fragment cannot be parsed, which is then removed so that the
+     *         entry is no longer reusable
+     */
+    JsonObject loadFragment(Entry entry) throws IOException {
+        File file = fragmentFile(entry.fragment);
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            // left truncated by a build written before fragments were moved into place
+            Files.deleteIfExists(file.toPath());
+            return null;
+        }
+    }
+
+    /**
+     * Records a newly generated entry and stores its schema as a fragment. The fragment is
+     * written next to its final name and moved in place, so no other build ever reads it
+     * partially written.
+     */
+    void store(String key, String source, String group, JsonObject schema) throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        String json = GSON.toJson(schema);
+        String fragment = new Fingerprint().add(json).value();
+        File file = fragmentFile(fragment);
+        if (!file.isFile()) {
+            Files.createDirectories(file.getParentFile().toPath());
+            Path temp = Files.createTempFile(file.getParentFile().toPath(), fragment, ".tmp");
+            try {
+                Files.writeString(temp, json);
+                Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        entries.put(key, new Entry(source, fragment, group));
+    }
+
+    /**
+     * Drops the manifest on disk, so that a generation failing halfway through does not
+     * leave group files behind which a later run would take as up to date
+     */
+    void invalidate() throws IOException {
+        if (isEnabled()) {
+            discard(dir);
+        }
+    }
+
+    /**
+     * Drops the manifest kept in the given directory, once the group files were put in
+     * place by other means than the generation it describes
+     */
+    static void discard(File dir) throws IOException {
+        Files.deleteIfExists(new File(dir, MANIFEST_FILE).toPath());
+    }
+
+    /**
+     * Writes the manifest of this generation and removes the fragments no entry refers to any more
+     */
+    void save(Map<String, List<String>> groups) throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Content content = new Content();
+        content.generator = generator;
+        content.entries.putAll(entries);
+        content.groups.putAll(groups);
+
+        Files.createDirectories(dir.toPath());
+        try (Writer writer = Files.newBufferedWriter(new File(dir, MANIFEST_FILE).toPath(), StandardCharsets.UTF_8)) {
+            GSON.toJson(content, writer);
+        }
+
+        Set<String> referenced = new HashSet<>();
+        for (Entry entry : entries.values()) {
+            referenced.add(entry.fragment + ".json");
+        }
+        File[] fragments = new File(dir, FRAGMENTS_DIR).listFiles();
+        for (File fragment : fragments != null ? fragments : new File[0]) {
+            if (!referenced.contains(fragment.getName())) {
+                Files.deleteIfExists(fragment.toPath());
+            }
+        }
+    }
+
+    private File fragmentFile(String fragment) {
+        return new File(new File(dir, FRAGMENTS_DIR), fragment + ".json");
+    }
+}
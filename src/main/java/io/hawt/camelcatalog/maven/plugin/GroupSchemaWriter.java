@@ -0,0 +1,609 @@
+package io.hawt.camelcatalog.maven.plugin;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import io.hawt.camelcatalog.maven.plugin.util.Cbor;
+import io.hawt.camelcatalog.maven.plugin.util.FileHelper;
+import io.hawt.camelcatalog.maven.plugin.util.Fingerprint;
+
+/**
+ * Streams the schemas of one group of the camel model into its
+ * <tt>&lt;name&gt;-camel-model.json</tt> file as they are produced, so only
+ * the entry being written has to be held in memory. When compressing, a gzip
+ * copy of the file is written next to it once complete.
+ * <p/>
+ * When deduplicating, the property descriptors used by more than one entry are
+ * written once into a {@link #SHARED_PROPERTIES} table following the group, and
+ * each use is replaced by a <tt>{"$ref": "#/$defs/&lt;id&gt;"}</tt> reference to it,
+ * the id being the name of the property followed by the start of the hash of the
+ * descriptor. As the shared descriptors are only known once all the entries are in,
+ * the entries are spooled to a temporary file and rewritten on commit. Only the
+ * hashes of the descriptors are held in memory meanwhile.
+ * <p/>
+ * When sharding, each entry is also written on its own, as it is in the group file
+ * but with its properties always complete, into the <tt>&lt;name&gt;-camel-model</tt>
+ * directory, and listed with its title, group, icon and shard in
+ * <tt>&lt;name&gt;-camel-model-index.json</tt>, so that a client can list the entries
+ * without downloading all their properties.
+ * <p/>
+ * When splitting the docs, the descriptions, and optionally the titles, of the
+ * entries and of their properties are moved out of the group file and the shards
+ * into a <tt>&lt;name&gt;-camel-model-docs.json</tt> file of the same shape, which
+ * {@link #mergeDocs(JsonObject, JsonObject)} puts back. The index still lists the titles.
+ * <p/>
+ * When writing the binary format, the complete group file is also converted to
+ * CBOR into <tt>&lt;name&gt;-camel-model.cbor</tt>.
+ * <p/>
+ * All the files are written under temporary names and only moved into place by
+ * {@link #commit()}, so a group failing halfway through leaves the files of the
+ * last generation as they were, rather than a truncated group file.
+ */
+class GroupSchemaWriter implements Closeable {
+
+    /**
+     * Name of the table of shared property descriptors in a deduplicated group file
+     */
+    static final String SHARED_PROPERTIES = "$defs";
+
+    private static final String REF = "$ref";
+
+    private static final String REF_PREFIX = "#/" + SHARED_PROPERTIES + "/";
+
+    private static final Gson COMPACT_GSON = new Gson();
+
+    /**
+     * Number of hex digits of the hash of a shared descriptor making its id, unless another
+     * descriptor of the same property starts the same
+     */
+    private static final int ID_HASH_LENGTH = 8;
+
+    /**
+     * Fields of the entries copied into the index of a sharded group
+     */
+    private static final String[] INDEX_FIELDS = { "title", "group", "icon" };
+
+    private static final String DESCRIPTION = "description";
+
+    private static final String TITLE = "title";
+
+    private static final String PROPERTIES = "properties";
+
+    /**
+     * What gets written besides the group file
+     */
+    static class Options {
+        private boolean compress;
+        private boolean deduplicate;
+        private boolean shard;
+        private boolean splitDocs;
+        private boolean splitTitles;
+        private boolean binary;
+
+        Options compress(boolean compress) {
+            this.compress = compress;
+            return this;
+        }
+
+        Options deduplicate(boolean deduplicate) {
+            this.deduplicate = deduplicate;
+            return this;
+        }
+
+        Options shard(boolean shard) {
+            this.shard = shard;
+            return this;
+        }
+
+        /**
+         * Moves the descriptions into the docs file, along with the titles when splitting them as well
+         */
+        Options splitDocs(boolean splitDocs, boolean splitTitles) {
+            this.splitDocs = splitDocs;
+            this.splitTitles = splitDocs && splitTitles;
+            return this;
+        }
+
+        Options binary(boolean binary) {
+            this.binary = binary;
+            return this;
+        }
+    }
+
+    private final String name;
+
+    private final Gson gson;
+
+    private final File file;
+
+    private final Options options;
+
+    /**
+     * The uses of every distinct property descriptor, keyed by the hash of its compact
+     * json in the order they were first met, null when not deduplicating
+     */
+    private final Map<String, PropertyUses> properties;
+
+    private final JsonWriter writer;
+
+    /**
+     * The index of the entries written to their own shard, null when not sharding
+     */
+    private final JsonObject index;
+
+    /**
+     * Writes the docs moved out of the entries, null when not splitting them
+     */
+    private final JsonWriter docsWriter;
+
+    private boolean committed;
+
+    private static class PropertyUses {
+        private final String name;
+        private int count;
+        private String id;
+
+        PropertyUses(String name) {
+            this.name = name;
+        }
+    }
+
+    GroupSchemaWriter(Gson gson, File schemaDir, String name, Options options) throws IOException {
+        this.name = name;
+        this.gson = gson;
+        this.file = new File(schemaDir, fileName(name));
+        this.options = options;
+
+        // whatever a previous run failing halfway through left behind
+        deleteTemporaryFiles();
+        if (options.shard) {
+            Files.createDirectories(temporary(shardDir()).toPath());
+            this.index = new JsonObject();
+        } else {
+            this.index = null;
+        }
+        if (options.splitDocs) {
+            File docs = temporary(new File(schemaDir, docsFileName(name)));
+            this.docsWriter = gson.newJsonWriter(Files.newBufferedWriter(docs.toPath(), StandardCharsets.UTF_8));
+            docsWriter.beginObject();
+            docsWriter.name(name);
+            docsWriter.beginObject();
+        } else {
+            this.docsWriter = null;
+        }
+        if (options.deduplicate) {
+            this.properties = new LinkedHashMap<>();
+            this.writer = new JsonWriter(Files.newBufferedWriter(spoolFile().toPath(), StandardCharsets.UTF_8));
+            writer.beginObject();
+        } else {
+            this.properties = null;
+            this.writer = openGroup();
+        }
+    }
+
+    static String fileName(String name) {
+        return name + "-camel-model.json";
+    }
+
+    static String compressedFileName(String fileName) {
+        return fileName + ".gz";
+    }
+
+    static String binaryFileName(String name) {
+        return name + "-camel-model.cbor";
+    }
+
+    static String docsFileName(String name) {
+        return name + "-camel-model-docs.json";
+    }
+
+    static String indexFileName(String name) {
+        return name + "-camel-model-index.json";
+    }
+
+    /**
+     * Name of the directory holding the shards of the group
+     */
+    static String shardDirName(String name) {
+        return name + "-camel-model";
+    }
+
+    /**
+     * Names of all the files and directories a group may be written to, whatever the
+     * options, the group file coming last
+     */
+    static List<String> outputFileNames(String name) {
+        String binary = binaryFileName(name);
+        String docs = docsFileName(name);
+        return List.of(shardDirName(name), indexFileName(name),
+            docs, compressedFileName(docs),
+            binary, compressedFileName(binary),
+            compressedFileName(fileName(name)), fileName(name));
+    }
+
+    /**
+     * Path of the shard of an entry, relative to the schema directory
+     */
+    static String shardFileName(String name, String key) {
+        return shardDirName(name) + "/" + key + ".json";
+    }
+
+    /**
+     * Replaces the references to shared property descriptors in a group file written while
+     * deduplicating by the descriptors themselves, giving back the group as written without
+     * deduplication. The references to the same descriptor end up sharing its instance.
+     */
+    static JsonObject resolve(JsonObject groupFile) {
+        JsonObject resolved = groupFile.deepCopy();
+        JsonElement shared = resolved.remove(SHARED_PROPERTIES);
+        if (shared == null) {
+            return resolved;
+        }
+        for (Map.Entry<String, JsonElement> group : resolved.entrySet()) {
+            for (Map.Entry<String, JsonElement> entry : group.getValue().getAsJsonObject().entrySet()) {
+                JsonObject entryProperties = entry.getValue().getAsJsonObject().getAsJsonObject("properties");
+                if (entryProperties == null) {
+                    continue;
+                }
+                for (Map.Entry<String, JsonElement> property : entryProperties.entrySet()) {
+                    JsonElement ref = property.getValue().getAsJsonObject().get(REF);
+                    if (ref != null) {
+                        String id = ref.getAsString().substring(REF_PREFIX.length());
+                        property.setValue(shared.getAsJsonObject().get(id));
+                    }
+                }
+            }
+        }
+        return resolved;
+    }
+
+    void add(String key, JsonObject schema) throws IOException {
+        JsonObject docs = null;
+        if (docsWriter != null) {
+            schema = schema.deepCopy();
+            docs = splitDocs(schema);
+        }
+        if (index != null) {
+            addShard(key, schema, docs);
+        }
+        if (docs != null) {
+            docsWriter.name(key);
+            gson.toJson(docs, docsWriter);
+        }
+        writer.name(key);
+        if (properties != null) {
+            JsonObject entryProperties = schema.getAsJsonObject("properties");
+            if (entryProperties != null) {
+                for (Map.Entry<String, JsonElement> property : entryProperties.entrySet()) {
+                    properties.computeIfAbsent(hash(property.getValue()),
+                        hash -> new PropertyUses(property.getKey())).count++;
+                }
+            }
+            COMPACT_GSON.toJson(schema, writer);
+        } else {
+            gson.toJson(schema, writer);
+        }
+    }
+
+    /**
+     * Removes the docs from the entry and its properties, returning them
+     */
+    private JsonObject splitDocs(JsonObject schema) {
+        JsonObject docs = moveDocs(schema, new JsonObject());
+        JsonObject entryProperties = schema.getAsJsonObject(PROPERTIES);
+        if (entryProperties != null) {
+            JsonObject propertyDocs = new JsonObject();
+            for (Map.Entry<String, JsonElement> property : entryProperties.entrySet()) {
+                JsonObject moved = moveDocs(property.getValue().getAsJsonObject(), new JsonObject());
+                if (moved.size() > 0) {
+                    propertyDocs.add(property.getKey(), moved);
+                }
+            }
+            docs.add(PROPERTIES, propertyDocs);
+        }
+        return docs;
+    }
+
+    private JsonObject moveDocs(JsonObject source, JsonObject docs) {
+        JsonElement description = source.remove(DESCRIPTION);
+        if (description != null) {
+            docs.add(DESCRIPTION, description);
+        }
+        if (options.splitTitles) {
+            JsonElement title = source.remove(TITLE);
+            if (title != null) {
+                docs.add(TITLE, title);
+            }
+        }
+        return docs;
+    }
+
+    /**
+     * Puts the docs split out of a group file back into its entries and their properties,
+     * giving back the group as written without splitting them. The group file has to be
+     * {@link #resolve(JsonObject) resolved} first when deduplicated.
+     */
+    static JsonObject mergeDocs(JsonObject groupFile, JsonObject docsFile) {
+        JsonObject merged = groupFile.deepCopy();
+        for (Map.Entry<String, JsonElement> group : merged.entrySet()) {
+            JsonObject groupDocs = docsFile.getAsJsonObject(group.getKey());
+            if (groupDocs == null || !group.getValue().isJsonObject()) {
+                continue;
+            }
+            for (Map.Entry<String, JsonElement> entry : group.getValue().getAsJsonObject().entrySet()) {
+                JsonObject entryDocs = groupDocs.getAsJsonObject(entry.getKey());
+                if (entryDocs == null) {
+                    continue;
+                }
+                JsonObject schema = entry.getValue().getAsJsonObject();
+                for (Map.Entry<String, JsonElement> field : entryDocs.entrySet()) {
+                    if (!PROPERTIES.equals(field.getKey())) {
+                        schema.add(field.getKey(), field.getValue());
+                    }
+                }
+                JsonObject propertyDocs = entryDocs.getAsJsonObject(PROPERTIES);
+                JsonObject entryProperties = schema.getAsJsonObject(PROPERTIES);
+                if (propertyDocs == null || entryProperties == null) {
+                    continue;
+                }
+                for (Map.Entry<String, JsonElement> property : entryProperties.entrySet()) {
+                    JsonObject docs = propertyDocs.getAsJsonObject(property.getKey());
+                    if (docs != null) {
+                        // the resolved properties may share their descriptor
+                        JsonObject descriptor = property.getValue().getAsJsonObject().deepCopy();
+                        docs.entrySet().forEach(field -> descriptor.add(field.getKey(), field.getValue()));
+                        property.setValue(descriptor);
+                    }
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Writes the shard of the entry and lists it in the index, taking the fields of the
+     * index moved into the docs from there
+     */
+    private void addShard(String key, JsonObject schema, JsonObject docs) throws IOException {
+        String shardFileName = shardFileName(name, key);
+        File shard = new File(temporary(shardDir()), key + ".json");
+        try (Writer shardWriter = Files.newBufferedWriter(shard.toPath(), StandardCharsets.UTF_8)) {
+            gson.toJson(schema, shardWriter);
+        }
+
+        JsonObject indexEntry = new JsonObject();
+        for (String field : INDEX_FIELDS) {
+            JsonElement value = schema.has(field) || docs == null ? schema.get(field) : docs.get(field);
+            if (value != null) {
+                indexEntry.add(field, value);
+            }
+        }
+        indexEntry.addProperty("shard", shardFileName);
+        index.add(key, indexEntry);
+    }
+
+    private File shardDir() {
+        return new File(file.getParentFile(), shardDirName(name));
+    }
+
+    private JsonWriter openGroup() throws IOException {
+        JsonWriter groupWriter = gson.newJsonWriter(Files.newBufferedWriter(temporary(file).toPath(),
+            StandardCharsets.UTF_8));
+        groupWriter.beginObject();
+        groupWriter.name(name);
+        groupWriter.beginObject();
+        return groupWriter;
+    }
+
+    private File spoolFile() {
+        return new File(file.getParentFile(), file.getName() + ".spool");
+    }
+
+    private File sharedSpoolFile() {
+        return new File(file.getParentFile(), file.getName() + ".defs");
+    }
+
+    private static String hash(JsonElement descriptor) {
+        return new Fingerprint().add(COMPACT_GSON.toJson(descriptor)).value();
+    }
+
+    /**
+     * Name the file, or directory, is written under until moved into place
+     */
+    private static File temporary(File target) {
+        return new File(target.getParentFile(), target.getName() + ".tmp");
+    }
+
+    /**
+     * All the files and directories making up the group, the group file coming last
+     */
+    private List<File> outputFiles() {
+        List<File> files = new ArrayList<>();
+        for (String fileName : outputFileNames(name)) {
+            files.add(new File(file.getParentFile(), fileName));
+        }
+        return files;
+    }
+
+    /**
+     * Completes the group and moves its files into place, replacing those of the last
+     * generation and removing the ones the options no longer produce. Closing the writer
+     * without committing discards everything written.
+     */
+    void commit() throws IOException {
+        writer.endObject();
+        if (properties == null) {
+            writer.endObject();
+        }
+        writer.close();
+
+        if (properties != null) {
+            try {
+                writeDeduplicated();
+            } finally {
+                Files.deleteIfExists(spoolFile().toPath());
+                Files.deleteIfExists(sharedSpoolFile().toPath());
+            }
+        }
+
+        File dir = file.getParentFile();
+        if (index != null) {
+            JsonObject indexFile = new JsonObject();
+            indexFile.add(name, index);
+            Files.writeString(temporary(new File(dir, indexFileName(name))).toPath(), gson.toJson(indexFile));
+        }
+
+        if (docsWriter != null) {
+            docsWriter.endObject();
+            docsWriter.endObject();
+            docsWriter.close();
+            if (options.compress) {
+                File docs = new File(dir, docsFileName(name));
+                FileHelper.gzip(temporary(docs), temporary(new File(dir, compressedFileName(docs.getName()))));
+            }
+        }
+
+        if (options.binary) {
+            File binary = new File(dir, binaryFileName(name));
+            Cbor.convert(temporary(file), temporary(binary));
+            if (options.compress) {
+                FileHelper.gzip(temporary(binary), temporary(new File(dir, compressedFileName(binary.getName()))));
+            }
+        }
+
+        if (options.compress) {
+            FileHelper.gzip(temporary(file), temporary(new File(dir, compressedFileName(file.getName()))));
+        }
+
+        // the files not written this time are stale copies, never to be served in place of the others
+        for (File output : outputFiles()) {
+            File written = temporary(output);
+            if (!written.exists() || output.isDirectory()) {
+                FileHelper.delete(output.toPath());
+            }
+            if (written.exists()) {
+                Files.move(written.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        committed = true;
+    }
+
+    /**
+     * Discards the files written, unless the group was committed
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        discard(writer);
+        if (docsWriter != null) {
+            discard(docsWriter);
+        }
+        deleteTemporaryFiles();
+    }
+
+    private static void discard(JsonWriter jsonWriter) {
+        try {
+            jsonWriter.close();
+        } catch (IOException e) {
+            // the document is incomplete, its stream got closed all the same
+        }
+    }
+
+    private void deleteTemporaryFiles() throws IOException {
+        Files.deleteIfExists(spoolFile().toPath());
+        Files.deleteIfExists(sharedSpoolFile().toPath());
+        for (File output : outputFiles()) {
+            FileHelper.delete(temporary(output).toPath());
+        }
+    }
+
+    /**
+     * Rewrites the spooled entries into the group file, referring to the shared descriptors
+     * which are listed after the group. The shared descriptors are copied out of the entries
+     * into a spool of their own the first time they are met, in the meantime.
+     */
+    private void writeDeduplicated() throws IOException {
+        // name the shared descriptors after their property and hash, never clashing with one another
+        Set<String> ids = new HashSet<>();
+        for (Map.Entry<String, PropertyUses> uses : properties.entrySet()) {
+            PropertyUses use = uses.getValue();
+            for (int length = ID_HASH_LENGTH; use.count > 1 && use.id == null; length++) {
+                String id = use.name + "-" + uses.getKey().substring(0, length);
+                use.id = ids.add(id) ? id : null;
+            }
+        }
+
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(spoolFile().toPath(), StandardCharsets.UTF_8));
+             JsonWriter sharedWriter = new JsonWriter(Files.newBufferedWriter(sharedSpoolFile().toPath(),
+                 StandardCharsets.UTF_8));
+             JsonWriter groupWriter = openGroup()) {
+            Set<String> shared = new HashSet<>();
+            sharedWriter.beginObject();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                JsonObject schema = JsonParser.parseReader(reader).getAsJsonObject();
+                JsonObject entryProperties = schema.getAsJsonObject("properties");
+                if (entryProperties != null) {
+                    for (Map.Entry<String, JsonElement> property : entryProperties.entrySet()) {
+                        String id = properties.get(hash(property.getValue())).id;
+                        if (id == null) {
+                            continue;
+                        }
+                        if (shared.add(id)) {
+                            sharedWriter.name(id);
+                            COMPACT_GSON.toJson(property.getValue(), sharedWriter);
+                        }
+                        JsonObject ref = new JsonObject();
+                        ref.addProperty(REF, REF_PREFIX + id);
+                        property.setValue(ref);
+                    }
+                }
+                groupWriter.name(key);
+                gson.toJson(schema, groupWriter);
+            }
+            reader.endObject();
+            groupWriter.endObject();
+            sharedWriter.endObject();
+            sharedWriter.flush();
+
+            groupWriter.name(SHARED_PROPERTIES);
+            groupWriter.beginObject();
+            try (JsonReader sharedReader = new JsonReader(Files.newBufferedReader(sharedSpoolFile().toPath(),
+                StandardCharsets.UTF_8))) {
+                sharedReader.beginObject();
+                while (sharedReader.hasNext()) {
+                    groupWriter.name(sharedReader.nextName());
+                    gson.toJson(JsonParser.parseReader(sharedReader), groupWriter);
+                }
+                sharedReader.endObject();
+            }
+            groupWriter.endObject();
+            groupWriter.endObject();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
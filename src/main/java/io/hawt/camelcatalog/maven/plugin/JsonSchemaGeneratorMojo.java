@@ -1,12 +1,29 @@
 package io.hawt.camelcatalog.maven.plugin;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import io.hawt.camelcatalog.maven.plugin.util.Fingerprint;
 import io.hawt.jsonschema.SchemaLookup;
+import io.hawt.jsonschema.internal.BeanValidationAnnotationIntrospector;
+import io.hawt.jsonschema.internal.BeanValidationAnnotationModule;
+import io.hawt.jsonschema.internal.IgnorePropertiesBackedByTransientFields;
+import io.hawt.jsonschema.internal.SchemaCustomizerRegistry;
+import io.hawt.jsonschema.internal.TransientFields;
+import io.hawt.jsonschema.internal.customizers.JsonSchemaCustomizer;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -15,40 +32,171 @@ import org.apache.maven.plugins.annotations.Parameter;
 /**
  * Uses hawtio-json-schema-mbean to generate Json Schema for Java classes
  */
-@Mojo(name = "generate-json-schema", defaultPhase = LifecyclePhase.GENERATE_SOURCES)
+@Mojo(name = "generate-json-schema", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
 public class JsonSchemaGeneratorMojo extends AbstractMojo {
 
+    /**
+     * The classes turning a class into its schema file
+     */
+    private static final List<Class<?>> GENERATOR_CLASSES = List.of(JsonSchemaGeneratorMojo.class,
+        SchemaLookup.class, IgnorePropertiesBackedByTransientFields.class, TransientFields.class,
+        BeanValidationAnnotationIntrospector.class, BeanValidationAnnotationModule.class,
+        SchemaCustomizerRegistry.class, JsonSchemaCustomizer.class, Fingerprint.class);
+
     /**
      * Java classes to be converted into schema
      */
     @Parameter(required = true)
     private Map<String, String> classes;
 
+    /**
+     * Writes the schemas on a single line instead of pretty printing them
+     */
+    @Parameter(defaultValue = "false")
+    private boolean compact;
+
+    /**
+     * Number of threads used to generate the schemas. 1 generates them sequentially
+     * and 0 uses as many threads as there are available processors.
+     */
+    @Parameter(defaultValue = "1")
+    private int parallelism;
+
+    /**
+     * Only regenerates the schema of a class when its bytecode, or that of a class its
+     * schema is generated from, or the configuration changed since the last run. The
+     * schema files of the other classes are left untouched. Off by default, so that existing
+     * builds keep generating every time.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean incremental;
+
+    @Parameter(defaultValue = "${project.build.directory}", readonly = true)
+    private File buildDir;
+
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution execution;
+
     public void execute() throws MojoExecutionException {
+        // the lookup is only used by this execution, so it is neither registered nor shared
         SchemaLookup lookup = new SchemaLookup();
-        lookup.init();
-
-        for (String clazz : this.classes.keySet()) {
-            try {
-                getLog().info("Looking up schema for class " + clazz);
+        lookup.initStandalone();
 
-                String targetFileName = this.classes.get(clazz);
-                String fileContents = "var " + clazz.replace('.', '_') + " = " + lookup.getSchemaForClass(clazz)
-                        + ";\n\n";
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        if (threads == 1) {
+            for (Map.Entry<String, String> entry : this.classes.entrySet()) {
+                generate(lookup, entry.getKey(), entry.getValue());
+            }
+            return;
+        }
 
-                File outputFile = new File(targetFileName);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<String, String> entry : this.classes.entrySet()) {
+                futures.add(executor.submit(() -> {
+                    generate(lookup, entry.getKey(), entry.getValue());
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Failed to generate schemas", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while generating schemas", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-                if (outputFile.getParentFile().mkdirs()) {
-                    getLog().info("Created path " + outputFile.getParentFile());
+    private void generate(SchemaLookup lookup, String clazz, String targetFileName) throws MojoExecutionException {
+        try {
+            File outputFile = new File(targetFileName);
+            File fingerprintFile = null;
+            String fingerprint = null;
+            if (incremental) {
+                fingerprintFile = new File(new File(buildDir, "json-schema-" + execution.getExecutionId()),
+                    clazz + ".fingerprint");
+                fingerprint = fingerprint(lookup, clazz, outputFile);
+                if (outputFile.isFile() && fingerprint.equals(readFingerprint(fingerprintFile))) {
+                    getLog().info("Schema for class " + clazz + " is up to date");
+                    return;
                 }
+                // a schema file left half written must not be taken as up to date
+                Files.deleteIfExists(fingerprintFile.toPath());
+            }
+
+            getLog().info("Looking up schema for class " + clazz);
 
-                BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile));
-                out.write(fileContents.getBytes());
-                out.flush();
-                out.close();
-            } catch (Exception e) {
-                throw new MojoExecutionException("Failed to generate schema for " + clazz, e);
+            if (outputFile.getParentFile().mkdirs()) {
+                getLog().info("Created path " + outputFile.getParentFile());
             }
+
+            try (Writer out = Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8)) {
+                out.write("var " + clazz.replace('.', '_') + " = ");
+                lookup.writeSchemaForClass(clazz, out, !compact);
+                out.write(";\n\n");
+            }
+
+            if (fingerprint != null) {
+                writeFingerprint(fingerprintFile, fingerprint);
+            }
+        } catch (Exception e) {
+            throw new MojoExecutionException("Failed to generate schema for " + clazz, e);
+        }
+    }
+
+    /**
+     * Hashes what the schema file of the class is made from: the bytecode of the classes
+     * its schema is generated from, the version and code of the plugin and its configuration
+     */
+    private String fingerprint(SchemaLookup lookup, String clazz, File outputFile)
+        throws IOException, ClassNotFoundException {
+        Fingerprint fingerprint = new Fingerprint().add(pluginVersion);
+        for (Class<?> generatorClass : GENERATOR_CLASSES) {
+            fingerprint.add(generatorClass);
+        }
+        fingerprint
+            .add(clazz)
+            .add(outputFile.getAbsolutePath())
+            .add("compact=" + compact);
+
+        // in a stable order, whatever the order the classes were found in
+        Map<String, Class<?>> classes = new TreeMap<>();
+        for (Class<?> schemaClass : lookup.getSchemaClasses(Class.forName(clazz, false, SchemaLookup.class.getClassLoader()))) {
+            classes.put(schemaClass.getName(), schemaClass);
+        }
+        for (Class<?> schemaClass : classes.values()) {
+            fingerprint.add(schemaClass);
+        }
+        return fingerprint.value();
+    }
+
+    private String readFingerprint(File file) {
+        try {
+            return file.isFile() ? Files.readString(file.toPath()) : null;
+        } catch (IOException e) {
+            getLog().debug("Cannot read " + file + ", regenerating the schema", e);
+            return null;
+        }
+    }
+
+    private void writeFingerprint(File file, String fingerprint) {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.writeString(file.toPath(), fingerprint);
+        } catch (IOException e) {
+            // only costs a regeneration next time
+            getLog().warn("Cannot write " + file + ": " + e.getMessage());
         }
     }
 }
@@ -0,0 +1,142 @@
+package io.hawt.camelcatalog.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import io.hawt.camelcatalog.maven.plugin.util.FileHelper;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A persistent cache of generated camel models shared between projects, holding one
+ * directory of generated files per key. Entries are written to a temporary directory
+ * first and moved in place, so concurrent builds never see a partial entry.
+ * <p/>
+ * The cache is kept bounded by evicting the entries not used for longer than the
+ * maximum age and then the least recently used ones until it fits in the maximum size.
+ */
+class ModelCache {
+
+    private static final String TEMP_PREFIX = ".tmp-";
+
+    private final File dir;
+
+    private final long maxAgeMillis;
+
+    private final long maxSizeBytes;
+
+    ModelCache(File dir, long maxAgeMillis, long maxSizeBytes) {
+        this.dir = dir;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    File getDir() {
+        return dir;
+    }
+
+    /**
+     * Copies the cached files and directories of the key into the target directory, removing
+     * the stale ones from there which the entry does not hold
+     *
+     * @return false when the cache holds no such entry
+     */
+    boolean restore(String key, File targetDir, List<String> fileNames, List<String> staleFileNames)
+        throws IOException {
+        Path entry = dir.toPath().resolve(key);
+        if (!Files.isDirectory(entry)) {
+            return false;
+        }
+        for (String fileName : fileNames) {
+            if (!Files.exists(entry.resolve(fileName))) {
+                return false;
+            }
+        }
+
+        Files.createDirectories(targetDir.toPath());
+        for (String fileName : fileNames) {
+            FileHelper.copy(entry.resolve(fileName), targetDir.toPath().resolve(fileName));
+        }
+        for (String fileName : staleFileNames) {
+            FileHelper.delete(targetDir.toPath().resolve(fileName));
+        }
+        // record the use for the eviction
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        return true;
+    }
+
+    /**
+     * Copies the files and directories generated in the source directory into the cache under the key
+     */
+    void store(String key, File sourceDir, List<String> fileNames) throws IOException {
+        Path entry = dir.toPath().resolve(key);
+        if (Files.isDirectory(entry)) {
+            return;
+        }
+
+        Path temp = dir.toPath().resolve(TEMP_PREFIX + UUID.randomUUID());
+        Files.createDirectories(temp);
+        try {
+            for (String fileName : fileNames) {
+                FileHelper.copy(sourceDir.toPath().resolve(fileName), temp.resolve(fileName));
+            }
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // another build may have stored the same entry in the meantime
+            if (!Files.isDirectory(entry)) {
+                throw e;
+            }
+        } finally {
+            FileHelper.delete(temp);
+        }
+    }
+
+    /**
+     * Removes the entries older than the maximum age, then the least recently used
+     * entries until the cache fits in its maximum size
+     */
+    void evict(Log log) throws IOException {
+        long now = System.currentTimeMillis();
+        List<Path> entries = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(dir.toPath())) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (!path.getFileName().toString().startsWith(TEMP_PREFIX)) {
+                    entries.add(path);
+                } else if (now - lastUsed(path) > maxAgeMillis) {
+                    // left behind by a build that died while storing its entry
+                    FileHelper.delete(path);
+                }
+            }
+        }
+        entries.sort(Comparator.comparingLong(this::lastUsed).reversed());
+
+        long size = 0;
+        for (Path entry : entries) {
+            long entrySize = size(entry);
+            if (now - lastUsed(entry) > maxAgeMillis || size + entrySize > maxSizeBytes) {
+                log.debug("Evicting " + entry + " from the Camel model cache");
+                FileHelper.delete(entry);
+            } else {
+                size += entrySize;
+            }
+        }
+    }
+
+    private long lastUsed(Path entry) {
+        return entry.toFile().lastModified();
+    }
+
+    private static long size(Path entry) throws IOException {
+        try (Stream<Path> paths = Files.walk(entry)) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package io.hawt.camelcatalog.maven.plugin.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static io.hawt.camelcatalog.maven.plugin.util.FileHelper.loadText;
+
+/**
+ * Reads the json entries of the camel-catalog, either from the artifact jar or
+ * from a directory the artifact has been unpacked into.
+ * <p/>
+ * The catalog is opened once and all the entries below {@link #CATALOG_PATH}
+ * are indexed in a single pass, so looking up an entry afterwards is a map hit.
+ * Entries may be opened concurrently.
+ */
+public abstract class CatalogReader implements Closeable {
+
+    public static final String CATALOG_PATH = "org/apache/camel/catalog";
+
+    /**
+     * Opens the camel-catalog at the given location
+     */
+    public static CatalogReader open(File location) throws IOException {
+        if (location.isDirectory()) {
+            return new DirectoryCatalogReader(location.toPath());
+        }
+        return new JarCatalogReader(location);
+    }
+
+    /**
+     * Returns the names listed in the <tt>&lt;dataPath&gt;.properties</tt> file of the catalog,
+     * in the order they are listed.
+     */
+    public List<String> names(String dataPath) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (String name : loadText(open(dataPath + ".properties")).split("\n")) {
+            names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * Opens the given entry of the catalog
+     *
+     * @throws FileNotFoundException if the catalog does not hold the entry
+     */
+    public abstract InputStream open(String path) throws IOException;
+
+    /**
+     * Returns a checksum of the given entry, which changes whenever its content does
+     *
+     * @throws FileNotFoundException if the catalog does not hold the entry
+     */
+    public abstract String checksum(String path) throws IOException;
+
+    protected static FileNotFoundException notFound(String path) {
+        return new FileNotFoundException("Cannot find " + path + " in camel-catalog");
+    }
+
+    private static class JarCatalogReader extends CatalogReader {
+        private final ZipFile zipFile;
+
+        private final Map<String, ZipEntry> index = new HashMap<>();
+
+        JarCatalogReader(File file) throws IOException {
+            this.zipFile = new ZipFile(file);
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith(CATALOG_PATH)) {
+                    index.put(entry.getName(), entry);
+                }
+            }
+        }
+
+        @Override
+        public InputStream open(String path) throws IOException {
+            ZipEntry entry = index.get(path);
+            if (entry == null) {
+                throw notFound(path);
+            }
+            return zipFile.getInputStream(entry);
+        }
+
+        @Override
+        public String checksum(String path) throws IOException {
+            ZipEntry entry = index.get(path);
+            if (entry == null) {
+                throw notFound(path);
+            }
+            // the jar already records the crc of every entry, no need to read it
+            return Long.toHexString(entry.getCrc()) + "-" + entry.getSize();
+        }
+
+        @Override
+        public void close() throws IOException {
+            zipFile.close();
+        }
+    }
+
+    private static class DirectoryCatalogReader extends CatalogReader {
+        private final Map<String, Path> index = new HashMap<>();
+
+        private final Map<String, String> checksums = new ConcurrentHashMap<>();
+
+        DirectoryCatalogReader(Path root) throws IOException {
+            Path catalogDir = root.resolve(CATALOG_PATH);
+            if (!Files.isDirectory(catalogDir)) {
+                return;
+            }
+            try (Stream<Path> paths = Files.walk(catalogDir)) {
+                paths.filter(Files::isRegularFile).forEach(path -> {
+                    String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+                    index.put(name, path);
+                });
+            }
+        }
+
+        @Override
+        public InputStream open(String path) throws IOException {
+            Path entry = index.get(path);
+            if (entry == null) {
+                throw notFound(path);
+            }
+            return Files.newInputStream(entry);
+        }
+
+        @Override
+        public String checksum(String path) throws IOException {
+            String checksum = checksums.get(path);
+            if (checksum != null) {
+                return checksum;
+            }
+            Path entry = index.get(path);
+            if (entry == null) {
+                throw notFound(path);
+            }
+            CRC32 crc = new CRC32();
+            byte[] content = Files.readAllBytes(entry);
+            crc.update(content);
+            checksum = Long.toHexString(crc.getValue()) + "-" + content.length;
+            checksums.put(path, checksum);
+            return checksum;
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+}
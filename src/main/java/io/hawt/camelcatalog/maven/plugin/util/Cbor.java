@@ -0,0 +1,60 @@
+package io.hawt.camelcatalog.maven.plugin.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Converts json to CBOR (RFC 8949) with jackson-dataformat-cbor. The json is copied token
+ * by token, the objects and arrays being written with indefinite lengths, so that files of
+ * any size are converted without being held in memory.
+ * <p/>
+ * Any CBOR decoder reads the converted files, for instance Jackson's <tt>CBORMapper</tt>.
+ */
+public final class Cbor {
+
+    private static final JsonFactory JSON = JsonFactory.builder()
+        .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+        .build();
+
+    private static final CBORFactory CBOR = CBORFactory.builder()
+        .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+        .build();
+
+    private Cbor() {
+    }
+
+    /**
+     * Writes the CBOR encoding of the json file to the target file
+     */
+    public static void convert(File json, File target) throws IOException {
+        try (Reader in = Files.newBufferedReader(json.toPath(), StandardCharsets.UTF_8);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(target.toPath()))) {
+            write(in, out);
+        }
+    }
+
+    /**
+     * Writes the CBOR encoding of the json read, leaving both streams open
+     */
+    public static void write(Reader json, OutputStream target) throws IOException {
+        try (JsonParser parser = JSON.createParser(json);
+             JsonGenerator generator = CBOR.createGenerator(target)) {
+            if (parser.nextToken() == null) {
+                throw new IOException("No json to convert");
+            }
+            generator.copyCurrentStructure(parser);
+        }
+    }
+}
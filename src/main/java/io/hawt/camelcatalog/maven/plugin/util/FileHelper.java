@@ -1,10 +1,20 @@
 package io.hawt.camelcatalog.maven.plugin.util;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 public class FileHelper {
 
@@ -36,4 +46,66 @@ public class FileHelper {
         }
     }
 
+    /**
+     * Writes a gzip compressed copy of the source file, at the best compression level
+     * as the copy is compressed once and served many times.
+     */
+    public static void gzip(File source, File target) throws IOException {
+        try (InputStream in = Files.newInputStream(source.toPath());
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target.toPath())) {
+                 {
+                     def.setLevel(Deflater.BEST_COMPRESSION);
+                 }
+             }) {
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * Copies the file, or the directory with all its content, replacing the target
+     */
+    public static void copy(Path source, Path target) throws IOException {
+        if (!Files.isDirectory(source)) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+        // a directory left in place would keep the files the source no longer has
+        delete(target);
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.copy(file, target.resolve(source.relativize(file)), StandardCopyOption.REPLACE_EXISTING);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Deletes the file, or the directory with all its content, when it exists
+     */
+    public static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.deleteIfExists(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
 }
@@ -0,0 +1,110 @@
+package io.hawt.camelcatalog.maven.plugin.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds a SHA-256 content hash over a sequence of values, files and streams
+ * to detect whether the inputs of a generation have changed.
+ */
+public class Fingerprint {
+
+    private final MessageDigest digest;
+
+    public Fingerprint() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM", e);
+        }
+    }
+
+    public Fingerprint add(String value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        // separate the values so that ("ab", "c") and ("a", "bc") differ
+        digest.update((byte) 0);
+        return this;
+    }
+
+    /**
+     * Adds the content of the stream and closes it
+     */
+    public Fingerprint add(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (in) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        digest.update((byte) 0);
+        return this;
+    }
+
+    /**
+     * Adds the content of the file, or the relative paths and contents of all
+     * the files below it when it is a directory
+     */
+    public Fingerprint add(File file) throws IOException {
+        Path root = file.toPath();
+        if (!Files.isDirectory(root)) {
+            return add(Files.newInputStream(root));
+        }
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(root)) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path path : files) {
+            add(root.relativize(path).toString().replace(File.separatorChar, '/'));
+            add(Files.newInputStream(path));
+        }
+        return this;
+    }
+
+    /**
+     * Adds the bytecode of the class, along with that of its nested and anonymous classes
+     */
+    public Fingerprint add(Class<?> clazz) throws IOException {
+        String path = "/" + clazz.getName().replace('.', '/');
+        add(clazz.getName());
+        add(bytecode(clazz, path + ".class"));
+        Class<?>[] nested = clazz.getDeclaredClasses();
+        Arrays.sort(nested, Comparator.comparing(Class::getName));
+        for (Class<?> nestedClass : nested) {
+            add(nestedClass);
+        }
+        // the anonymous classes are not listed, only numbered
+        for (int i = 1; clazz.getResource(path + "$" + i + ".class") != null; i++) {
+            add(bytecode(clazz, path + "$" + i + ".class"));
+        }
+        return this;
+    }
+
+    private static InputStream bytecode(Class<?> clazz, String path) {
+        InputStream in = clazz.getResourceAsStream(path);
+        return in != null ? in : InputStream.nullInputStream();
+    }
+
+    /**
+     * Completes the hash and returns it as a hex string. Nothing more should be added afterwards.
+     */
+    public String value() {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
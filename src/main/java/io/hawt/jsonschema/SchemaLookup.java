@@ -1,16 +1,44 @@
 package io.hawt.jsonschema;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
 import com.fasterxml.jackson.module.jaxb.JaxbAnnotationModule;
 import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
 import com.fasterxml.jackson.module.jsonSchema.factories.SchemaFactoryWrapper;
 import io.hawt.jsonschema.internal.BeanValidationAnnotationModule;
+import io.hawt.jsonschema.internal.BundleClassIndex;
 import io.hawt.jsonschema.internal.IgnorePropertiesBackedByTransientFields;
+import io.hawt.jsonschema.internal.SchemaCache;
+import io.hawt.jsonschema.internal.SchemaCustomizerRegistry;
+import io.hawt.jsonschema.internal.SchemaLookupMetrics;
+import io.hawt.jsonschema.internal.SchemaWarmUp;
 import io.hawt.jsonschema.internal.customizers.JsonSchemaCustomizer;
 import io.hawt.util.MBeanSupport;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
 import org.osgi.framework.FrameworkUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,45 +46,198 @@ import org.slf4j.LoggerFactory;
 public class SchemaLookup extends MBeanSupport implements SchemaLookupMXBean {
     private static final transient Logger LOG = LoggerFactory.getLogger(SchemaLookup.class);
 
-    private static SchemaLookup singleton;
+    /**
+     * System property listing the classes to warm up, when not configured on the lookup
+     */
+    public static final String WARM_UP_PROPERTY = "hawtio.schemaLookup.warmUp";
+
+    private static volatile SchemaLookup singleton;
 
     private ObjectMapper mapper;
 
+    /**
+     * The writers of the schemas, which are immutable and so shared by all the lookups
+     */
+    private volatile ObjectWriter compactWriter;
+
+    private volatile ObjectWriter prettyWriter;
+
+    /**
+     * The generated schemas, which do not change while the bundles owning their
+     * classes stay installed
+     */
+    private final SchemaCache schemaCache = new SchemaCache(256);
+
+    private final SchemaLookupMetrics metrics = new SchemaLookupMetrics();
+
+    private BundleContext bundleContext;
+
+    /**
+     * Number of threads generating the schemas of a batch lookup
+     */
+    private int lookupThreads = Runtime.getRuntime().availableProcessors();
+
+    private ExecutorService executor;
+
+    /**
+     * Runs the warm-up apart from the batch lookups, which must not queue behind it
+     */
+    private ExecutorService warmUpExecutor;
+
+    private String warmUpClasses;
+
+    private SchemaWarmUp warmUp;
+
+    /**
+     * The bundles to load the classes from by package, null when not running in OSGi
+     */
+    private BundleClassIndex bundleClassIndex;
+
+    private final SchemaCustomizerRegistry customizerRegistry = new SchemaCustomizerRegistry(name -> {
+        try {
+            return getClass(name, true);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }, schemaCache::invalidateClass);
+
+    private final BundleListener bundleListener = event -> {
+        bundleClassIndex.bundleChanged(event);
+        if (event.getType() == BundleEvent.RESOLVED) {
+            // the bundle may hold customizers following the naming convention
+            customizerRegistry.bundleResolved(event.getBundle());
+        }
+        switch (event.getType()) {
+            case BundleEvent.UPDATED:
+            case BundleEvent.UNRESOLVED:
+            case BundleEvent.UNINSTALLED:
+                schemaCache.invalidateBundle(event.getBundle().getBundleId());
+                break;
+            default:
+                break;
+        }
+    };
+
     public SchemaLookup() {
     }
 
     public static SchemaLookup getSingleton() {
-        if (singleton == null) {
-            // lazy create one
-            new SchemaLookup().init();
+        SchemaLookup lookup = singleton;
+        if (lookup == null) {
+            synchronized (SchemaLookup.class) {
+                if (singleton == null) {
+                    // lazy create one
+                    new SchemaLookup().init();
+                }
+                lookup = singleton;
+            }
         }
-        return singleton;
+        return lookup;
     }
 
     public void init() {
         LOG.debug("Creating hawtio SchemaLookup instance");
         try {
-            if (mapper == null) {
-                mapper = new ObjectMapper();
-
-                mapper.setVisibility(new IgnorePropertiesBackedByTransientFields(mapper.getVisibilityChecker()));
-
-                JaxbAnnotationModule module1 = new JaxbAnnotationModule();
-                mapper.registerModule(module1);
-
-                BeanValidationAnnotationModule module2 = new BeanValidationAnnotationModule();
-                mapper.registerModule(module2);
-
+            initMapper();
+            if (executor == null) {
+                AtomicInteger threads = new AtomicInteger();
+                executor = Executors.newFixedThreadPool(lookupThreads,
+                        runnable -> daemonThread(runnable, "hawtio-schema-lookup-" + threads.incrementAndGet()));
+            }
+            Bundle currentBundle = FrameworkUtil.getBundle(getClass());
+            if (currentBundle != null && currentBundle.getBundleContext() != null) {
+                bundleContext = currentBundle.getBundleContext();
+                bundleClassIndex = new BundleClassIndex(bundleContext);
+                bundleContext.addBundleListener(bundleListener);
+                customizerRegistry.open(bundleContext);
             }
             // now lets expose the mbean...
             super.init();
             singleton = this;
+            startWarmUp();
         } catch (Exception e) {
             LOG.warn("Exception during initialization: ", e);
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Initialises the lookup for generating schemas only, without exposing it over JMX
+     * nor following the OSGi bundles, as needed by build tools. The batch lookups and the
+     * warm-up are not available.
+     */
+    public void initStandalone() {
+        LOG.debug("Creating standalone hawtio SchemaLookup instance");
+        initMapper();
+    }
+
+    private void initMapper() {
+        if (mapper == null) {
+            mapper = new ObjectMapper();
+
+            mapper.setVisibility(new IgnorePropertiesBackedByTransientFields(mapper.getVisibilityChecker()));
+
+            JaxbAnnotationModule module1 = new JaxbAnnotationModule();
+            mapper.registerModule(module1);
+
+            BeanValidationAnnotationModule module2 = new BeanValidationAnnotationModule();
+            mapper.registerModule(module2);
+
+        }
+        createWriters();
+    }
+
+    private void startWarmUp() {
+        String classes = warmUpClasses != null && !warmUpClasses.trim().isEmpty()
+                ? warmUpClasses : System.getProperty(WARM_UP_PROPERTY);
+        if (classes == null || classes.trim().isEmpty()) {
+            return;
+        }
+        if (warmUpExecutor == null) {
+            warmUpExecutor = Executors.newSingleThreadExecutor(
+                    runnable -> daemonThread(runnable, "hawtio-schema-warm-up"));
+        }
+        warmUp = new SchemaWarmUp(SchemaWarmUp.parse(classes), schemaCache.getMaxSize());
+        warmUp.start(warmUpExecutor, this::classNames, name -> warmUpSchema(getClass(name, true)));
+    }
+
+    private static Thread daemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Lists the classes of a package and its sub-packages
+     */
+    protected Collection<String> classNames(String packageName) throws IOException {
+        BundleClassIndex index = bundleClassIndex;
+        if (index != null) {
+            return index.classNames(packageName);
+        }
+        return SchemaWarmUp.scanClassPath(SchemaLookup.class.getClassLoader(), packageName);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (bundleContext != null) {
+            customizerRegistry.close();
+            bundleContext.removeBundleListener(bundleListener);
+            bundleContext = null;
+            bundleClassIndex = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (warmUpExecutor != null) {
+            warmUpExecutor.shutdownNow();
+            warmUpExecutor = null;
+        }
+        schemaCache.invalidate();
+        super.destroy();
+    }
+
     @Override
     protected String getDefaultObjectName() {
         return "hawtio:type=SchemaLookup";
@@ -67,21 +248,11 @@ public class SchemaLookup extends MBeanSupport implements SchemaLookupMXBean {
     }
 
     protected Class<?> getClass(String name, boolean quiet) {
-        BundleContext bundleContext = null;
-        Bundle currentBundle = FrameworkUtil.getBundle(getClass());
-        if (currentBundle != null) {
-            bundleContext = currentBundle.getBundleContext();
-        }
-        if (bundleContext != null) {
-            Bundle[] bundles = bundleContext.getBundles();
-            for (Bundle bundle : bundles) {
-                if (bundle.getState() >= Bundle.RESOLVED) {
-                    try {
-                        return bundle.loadClass(name);
-                    } catch (ClassNotFoundException e) {
-                        // Ignore
-                    }
-                }
+        BundleClassIndex index = bundleClassIndex;
+        if (index != null) {
+            Class<?> clazz = index.loadClass(name);
+            if (clazz != null) {
+                return clazz;
             }
         } else {
             try {
@@ -93,26 +264,105 @@ public class SchemaLookup extends MBeanSupport implements SchemaLookupMXBean {
                 throw new RuntimeException(e);
             }
         }
-        LOG.warn("Failed to find class for {}", name);
+        if (!quiet) {
+            LOG.warn("Failed to find class for {}", name);
+        }
         throw new RuntimeException(new ClassNotFoundException(name));
     }
 
     @Override
     public String getSchemaForClass(String name) {
-        Class<?> clazz = getClass(name);
-        return getSchemaForClass(clazz);
+        long start = System.nanoTime();
+        try {
+            Class<?> clazz;
+            try {
+                clazz = getClass(name);
+            } catch (RuntimeException e) {
+                metrics.recordClassResolutionFailure();
+                throw e;
+            }
+            return getSchemaForClass(clazz);
+        } finally {
+            metrics.recordRequest(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String getSchemasForClasses(String[] names) {
+        ExecutorService lookupExecutor = executor;
+        if (lookupExecutor == null) {
+            throw new IllegalStateException("SchemaLookup has not been initialised");
+        }
+        Map<String, CompletableFuture<String>> lookups = new LinkedHashMap<>();
+        for (String name : names) {
+            lookups.computeIfAbsent(name,
+                    className -> CompletableFuture.supplyAsync(() -> getSchemaForClass(className), lookupExecutor));
+        }
+
+        // the envelope stays compact, as the schemas are copied in as they are cached, already indented
+        StringWriter result = new StringWriter();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(result)) {
+            Map<String, String> errors = new LinkedHashMap<>();
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("schemas");
+            for (Map.Entry<String, CompletableFuture<String>> lookup : lookups.entrySet()) {
+                try {
+                    String schema = lookup.getValue().join();
+                    generator.writeFieldName(lookup.getKey());
+                    generator.writeRawValue(schema);
+                } catch (CompletionException e) {
+                    errors.put(lookup.getKey(), rootCause(e).toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("errors");
+            for (Map.Entry<String, String> error : errors.entrySet()) {
+                generator.writeStringField(error.getKey(), error.getValue());
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return result.toString();
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
     }
 
     public String getSchemaForClass(Class<?> clazz) {
+        String cached = schemaCache.get(clazz);
+        if (cached != null) {
+            return cached;
+        }
+        return generateAndCacheSchema(clazz);
+    }
+
+    /**
+     * Caches the schema of the class ahead of its first lookup. The warm-up is no lookup,
+     * so it counts neither as a hit nor as a miss of the schema cache.
+     */
+    private void warmUpSchema(Class<?> clazz) {
+        if (!schemaCache.contains(clazz)) {
+            generateAndCacheSchema(clazz);
+        }
+    }
+
+    private String generateAndCacheSchema(Class<?> clazz) {
         LOG.debug("Looking up schema for {}", clazz.getCanonicalName());
         String name = clazz.getName();
         try {
-            ObjectWriter writer = mapper.writer().withDefaultPrettyPrinter();
-            SchemaFactoryWrapper visitor = new SchemaFactoryWrapper();
-            mapper.acceptJsonFormatVisitor(mapper.constructType(clazz), visitor);
-            JsonSchema jsonSchema = visitor.finalSchema();
-            customizeSchema(clazz, jsonSchema);
-            return writer.writeValueAsString(jsonSchema);
+            // a schema generated while its bundle or customizer goes away must not be cached
+            long stamp = schemaCache.stamp();
+            String schema = schemaWriter(true).writeValueAsString(generateSchema(clazz));
+            Bundle bundle = FrameworkUtil.getBundle(clazz);
+            schemaCache.put(clazz, bundle != null ? bundle.getBundleId() : SchemaCache.NO_BUNDLE, schema, stamp);
+            return schema;
 //            SchemaFactoryWrapper schemaFactoryWrapper = new SchemaFactoryWrapper();
 //            mapper.acceptJsonFormatVisitor(mapper.constructType(clazz), schemaFactoryWrapper);
 //            com.fasterxml.jackson.module.jsonSchema.JsonSchema jsonSchema = schemaFactoryWrapper.finalSchema();
@@ -124,8 +374,104 @@ public class SchemaLookup extends MBeanSupport implements SchemaLookupMXBean {
     }
 
     /**
-     * If there's schema customizer, use it to alter generated schema. Customizer is
-     * looked in
+     * Writes the JSON schema of the class straight to the writer, which is left open. Unlike
+     * {@link #getSchemaForClass(Class)} this neither uses nor fills the schema cache, and is
+     * meant for exporting schemas in bulk.
+     *
+     * @param pretty whether to indent the schema, or to write it on a single line
+     */
+    public void writeSchemaForClass(Class<?> clazz, Writer out, boolean pretty) throws IOException {
+        schemaWriter(pretty).writeValue(out, generateSchema(clazz));
+    }
+
+    /**
+     * Writes the JSON schema of the class straight to the stream in UTF-8, leaving it open.
+     * Unlike {@link #getSchemaForClass(Class)} this neither uses nor fills the schema cache,
+     * and is meant for exporting schemas in bulk.
+     *
+     * @param pretty whether to indent the schema, or to write it on a single line
+     */
+    public void writeSchemaForClass(Class<?> clazz, OutputStream out, boolean pretty) throws IOException {
+        schemaWriter(pretty).writeValue(out, generateSchema(clazz));
+    }
+
+    public void writeSchemaForClass(String name, Writer out, boolean pretty) throws IOException {
+        writeSchemaForClass(getClass(name), out, pretty);
+    }
+
+    public void writeSchemaForClass(String name, OutputStream out, boolean pretty) throws IOException {
+        writeSchemaForClass(getClass(name), out, pretty);
+    }
+
+    protected JsonSchema generateSchema(Class<?> clazz) throws JsonMappingException {
+        SchemaFactoryWrapper visitor = new SchemaFactoryWrapper();
+        mapper.acceptJsonFormatVisitor(mapper.constructType(clazz), visitor);
+        JsonSchema jsonSchema = visitor.finalSchema();
+        customizeSchema(clazz, jsonSchema);
+        return jsonSchema;
+    }
+
+    /**
+     * Lists the classes the schema of the given class is generated from: the class, its
+     * super types, the types of its serialized properties and the customizers of all of
+     * them, recursively. The JDK classes are left out, as they do not change between builds.
+     */
+    public Set<Class<?>> getSchemaClasses(Class<?> clazz) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        Deque<JavaType> pending = new ArrayDeque<>();
+        pending.add(mapper.constructType(clazz));
+        while (!pending.isEmpty()) {
+            JavaType type = pending.poll();
+            for (int i = 0; i < type.containedTypeCount(); i++) {
+                pending.add(type.containedType(i));
+            }
+            if (type.getContentType() != null) {
+                pending.add(type.getContentType());
+            }
+            if (type.getKeyType() != null) {
+                pending.add(type.getKeyType());
+            }
+
+            Class<?> raw = type.getRawClass();
+            if (raw.isPrimitive() || raw.isArray() || isJdkClass(raw) || !classes.add(raw)) {
+                continue;
+            }
+            if (raw.getSuperclass() != null) {
+                pending.add(mapper.constructType(raw.getSuperclass()));
+            }
+            for (Class<?> superInterface : raw.getInterfaces()) {
+                pending.add(mapper.constructType(superInterface));
+            }
+            JsonSchemaCustomizer customizer = customizerRegistry.customizerFor(raw);
+            if (!SchemaCustomizerRegistry.isNone(customizer)) {
+                classes.add(customizer.getClass());
+            }
+            if (!raw.isEnum() && !raw.isInterface()) {
+                for (BeanPropertyDefinition property : mapper.getSerializationConfig().introspect(type).findProperties()) {
+                    pending.add(property.getPrimaryType());
+                }
+            }
+        }
+        return classes;
+    }
+
+    private static boolean isJdkClass(Class<?> clazz) {
+        ClassLoader classLoader = clazz.getClassLoader();
+        return classLoader == null || classLoader == ClassLoader.getPlatformClassLoader();
+    }
+
+    private ObjectWriter schemaWriter(boolean pretty) {
+        return pretty ? prettyWriter : compactWriter;
+    }
+
+    private void createWriters() {
+        compactWriter = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        prettyWriter = compactWriter.withDefaultPrettyPrinter();
+    }
+
+    /**
+     * If there's schema customizer, use it to alter generated schema. Customizers are
+     * registered through ServiceLoader or as OSGi services, or looked in
      * io.hawt.jsonschema.internal.customizers.&lt;fullClazzName&gt;SchemaCustomizer
      * class
      *
@@ -134,21 +480,133 @@ public class SchemaLookup extends MBeanSupport implements SchemaLookupMXBean {
      * @return
      */
     private JsonSchema customizeSchema(Class<?> clazz, JsonSchema jsonSchema) {
-        String customizerClassName = String.format("%s.internal.customizers.%sSchemaCustomizer",
-                getClass().getPackage().getName(), clazz.getName());
         try {
-            Class<?> customizerClass = getClass(customizerClassName, true);
-            return ((JsonSchemaCustomizer) customizerClass.newInstance()).customize(jsonSchema);
-        } catch (Exception ignored) {
+            JsonSchemaCustomizer customizer = customizerRegistry.customizerFor(clazz);
+            if (SchemaCustomizerRegistry.isNone(customizer)) {
+                return jsonSchema;
+            }
+            metrics.recordCustomizerHit();
+            return customizer.customize(jsonSchema);
+        } catch (Exception e) {
+            LOG.debug("Failed to customize JSON schema for class " + clazz.getName(), e);
             return jsonSchema;
         }
     }
 
+    @Override
+    public long getSchemaCacheHits() {
+        return schemaCache.getHits();
+    }
+
+    @Override
+    public long getSchemaCacheMisses() {
+        return schemaCache.getMisses();
+    }
+
+    @Override
+    public int getSchemaCacheSize() {
+        return schemaCache.size();
+    }
+
+    @Override
+    public void clearSchemaCache() {
+        schemaCache.clear();
+    }
+
+    @Override
+    public double getSchemaCacheHitRatio() {
+        long hits = schemaCache.getHits();
+        long lookups = hits + schemaCache.getMisses();
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return metrics.getRequests();
+    }
+
+    @Override
+    public long getClassResolutionFailures() {
+        return metrics.getClassResolutionFailures();
+    }
+
+    @Override
+    public long getCustomizerHits() {
+        return metrics.getCustomizerHits();
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return metrics.getLatencyPercentileMicros(0.5);
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return metrics.getLatencyPercentileMicros(0.99);
+    }
+
+    @Override
+    public long getLatencyMaxMicros() {
+        return metrics.getMaxLatencyMicros();
+    }
+
+    @Override
+    public void resetMetrics() {
+        metrics.reset();
+        schemaCache.resetStatistics();
+    }
+
+    @Override
+    public String getWarmUpStatus() {
+        SchemaWarmUp current = warmUp;
+        return current != null ? current.getStatus() : "DISABLED";
+    }
+
+    public String getWarmUpClasses() {
+        return warmUpClasses;
+    }
+
+    /**
+     * Sets the comma separated class names and package prefixes, like <tt>com.foo.*</tt>, of
+     * the classes whose schemas are generated in the background by {@link #init()}, on a
+     * thread of its own. Defaults to the {@value #WARM_UP_PROPERTY} system property when not
+     * set or blank. No more
+     * classes are warmed up than {@link #setMaxCachedSchemas(int) schemas are cached}.
+     */
+    public void setWarmUpClasses(String warmUpClasses) {
+        this.warmUpClasses = warmUpClasses;
+    }
+
+    public int getLookupThreads() {
+        return lookupThreads;
+    }
+
+    /**
+     * Sets the number of threads generating the schemas of a batch lookup, before {@link #init()}
+     */
+    public void setLookupThreads(int lookupThreads) {
+        this.lookupThreads = lookupThreads;
+    }
+
+    public int getMaxCachedSchemas() {
+        return schemaCache.getMaxSize();
+    }
+
+    /**
+     * Sets the maximum number of generated schemas kept, 0 to generate them on every lookup
+     */
+    public void setMaxCachedSchemas(int maxCachedSchemas) {
+        schemaCache.setMaxSize(maxCachedSchemas);
+    }
+
     public ObjectMapper getMapper() {
         return mapper;
     }
 
     public void setMapper(ObjectMapper mapper) {
         this.mapper = mapper;
+        createWriters();
+        // the schemas depend on the mapper configuration
+        schemaCache.invalidate();
     }
 }
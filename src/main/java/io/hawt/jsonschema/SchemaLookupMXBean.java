@@ -7,4 +7,81 @@ public interface SchemaLookupMXBean {
      */
     public String getSchemaForClass(String name);
 
+    /**
+     * Returns the JSON schemas of all the given classes at once, as a JSON object holding
+     * the schemas by class name under <tt>schemas</tt>, and the reason why the schema of
+     * a class could not be generated by class name under <tt>errors</tt>. Each schema is
+     * written as {@link #getSchemaForClass(String)} returns it, the object holding them
+     * being on a single line.
+     */
+    public String getSchemasForClasses(String[] names);
+
+    /**
+     * Returns the progress of the generation of the configured schemas at startup
+     */
+    public String getWarmUpStatus();
+
+    /**
+     * Returns the number of lookups answered from the schema cache. The warm-up does not
+     * count as lookups.
+     */
+    public long getSchemaCacheHits();
+
+    /**
+     * Returns the number of lookups which had to generate the schema, those generated by
+     * the warm-up not counting
+     */
+    public long getSchemaCacheMisses();
+
+    /**
+     * Returns the number of schemas currently cached
+     */
+    public int getSchemaCacheSize();
+
+    /**
+     * Drops all the cached schemas and resets the hit and miss counts
+     */
+    public void clearSchemaCache();
+
+    /**
+     * Returns the fraction of the lookups answered from the schema cache
+     */
+    public double getSchemaCacheHitRatio();
+
+    /**
+     * Returns the number of schemas requested by class name
+     */
+    public long getRequestCount();
+
+    /**
+     * Returns the number of requested classes which could not be found
+     */
+    public long getClassResolutionFailures();
+
+    /**
+     * Returns the number of generated schemas altered by a customizer
+     */
+    public long getCustomizerHits();
+
+    /**
+     * Returns the median time taken to return a schema requested by class name, in microseconds
+     */
+    public long getLatencyP50Micros();
+
+    /**
+     * Returns the 99th percentile of the time taken to return a schema requested by class name,
+     * in microseconds
+     */
+    public long getLatencyP99Micros();
+
+    /**
+     * Returns the longest time taken to return a schema requested by class name, in microseconds
+     */
+    public long getLatencyMaxMicros();
+
+    /**
+     * Resets the request counts and latencies, and the hit and miss counts of the schema cache
+     */
+    public void resetMetrics();
+
 }
@@ -44,16 +44,11 @@ public class BeanValidationAnnotationIntrospector extends AnnotationIntrospector
             // lets see if there is a transient field of the same name as the getter
             if (methodName.startsWith("get") && method.getParameterCount() == 0) {
                 String fieldName = Introspector.decapitalize(methodName.substring(3));
-                Class<?> declaringClass = method.getDeclaringClass();
-                Field field = findField(fieldName, declaringClass);
-                if (field != null) {
-                    int fieldModifiers = field.getModifiers();
-                    if (Modifier.isTransient(fieldModifiers)) {
-                        if (LOG.isDebugEnabled()) {
-                            LOG.debug("Ignoring member " + m + " due to transient field called " + fieldName);
-                        }
-                        return true;
+                if (TransientFields.isTransient(method.getDeclaringClass(), fieldName)) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Ignoring member " + m + " due to transient field called " + fieldName);
                     }
+                    return true;
                 }
             }
         }
@@ -61,17 +56,13 @@ public class BeanValidationAnnotationIntrospector extends AnnotationIntrospector
 
     }
 
+    /**
+     * @deprecated use {@link TransientFields#findField(String, Class)}, or
+     *             {@link TransientFields#isTransient(Class, String)} which caches its answer
+     */
+    @Deprecated
     protected static Field findField(String fieldName, Class<?> declaringClass) {
-        try {
-            return declaringClass.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException e) {
-            Class<?> superclass = declaringClass.getSuperclass();
-            if (superclass != null && superclass != declaringClass) {
-                return findField(fieldName, superclass);
-            } else {
-                return null;
-            }
-        }
+        return TransientFields.findField(fieldName, declaringClass);
     }
 
     @Override
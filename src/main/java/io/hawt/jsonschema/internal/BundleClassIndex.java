@@ -0,0 +1,172 @@
+package io.hawt.jsonschema.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleWiring;
+
+/**
+ * Finds the bundle to load a class from by its package, instead of trying every
+ * installed bundle in turn. The packages exported by the resolved bundles are
+ * indexed up front from their wiring, while the private packages are learnt from
+ * the lookups probing all the bundles. The names of the classes no bundle could
+ * load are remembered until a bundle gets resolved, so they fail fast.
+ * <p/>
+ * The index is kept current by passing it the bundle events.
+ */
+public class BundleClassIndex {
+
+    /**
+     * Number of missing class names remembered, beyond which they are forgotten
+     */
+    private static final int MAX_MISSING = 4096;
+
+    private final BundleContext bundleContext;
+
+    private final Map<String, List<Bundle>> packages = new HashMap<>();
+
+    private final Set<String> missing = new HashSet<>();
+
+    public BundleClassIndex(BundleContext bundleContext) {
+        this.bundleContext = bundleContext;
+        for (Bundle bundle : bundleContext.getBundles()) {
+            if (bundle.getState() >= Bundle.RESOLVED) {
+                indexExports(bundle);
+            }
+        }
+    }
+
+    /**
+     * Loads the class from the bundle providing its package
+     *
+     * @return null when no bundle can load the class
+     */
+    public Class<?> loadClass(String name) {
+        String packageName = packageName(name);
+        List<Bundle> providers;
+        synchronized (this) {
+            if (missing.contains(name)) {
+                return null;
+            }
+            providers = new ArrayList<>(packages.getOrDefault(packageName, Collections.emptyList()));
+        }
+
+        for (Bundle bundle : providers) {
+            Class<?> clazz = tryLoadClass(bundle, name);
+            if (clazz != null) {
+                return clazz;
+            }
+        }
+
+        // a private package, or a class which is not there
+        for (Bundle bundle : bundleContext.getBundles()) {
+            if (bundle.getState() >= Bundle.RESOLVED && !providers.contains(bundle)) {
+                Class<?> clazz = tryLoadClass(bundle, name);
+                if (clazz != null) {
+                    addProvider(packageName, bundle);
+                    return clazz;
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (missing.size() >= MAX_MISSING) {
+                missing.clear();
+            }
+            missing.add(name);
+        }
+        return null;
+    }
+
+    /**
+     * Lists the classes held by the resolved bundles in a package and its sub-packages
+     */
+    public Collection<String> classNames(String packageName) {
+        Set<String> classNames = new TreeSet<>();
+        for (Bundle bundle : bundleContext.getBundles()) {
+            BundleWiring wiring = bundle.getState() >= Bundle.RESOLVED ? bundle.adapt(BundleWiring.class) : null;
+            if (wiring == null) {
+                continue;
+            }
+            Collection<String> resources = wiring.listResources(packageName.replace('.', '/'), "*.class",
+                    BundleWiring.LISTRESOURCES_RECURSE | BundleWiring.LISTRESOURCES_LOCAL);
+            for (String resource : resources != null ? resources : Collections.<String>emptyList()) {
+                SchemaWarmUp.addClassName(classNames, resource);
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * Updates the index as bundles come and go
+     */
+    public void bundleChanged(BundleEvent event) {
+        Bundle bundle = event.getBundle();
+        switch (event.getType()) {
+            case BundleEvent.RESOLVED:
+                synchronized (this) {
+                    // the new bundle may provide any of them
+                    missing.clear();
+                }
+                indexExports(bundle);
+                break;
+            case BundleEvent.UPDATED:
+            case BundleEvent.UNRESOLVED:
+            case BundleEvent.UNINSTALLED:
+                remove(bundle);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void indexExports(Bundle bundle) {
+        BundleWiring wiring = bundle.adapt(BundleWiring.class);
+        if (wiring == null) {
+            return;
+        }
+        for (BundleCapability capability : wiring.getCapabilities(PackageNamespace.PACKAGE_NAMESPACE)) {
+            Object packageName = capability.getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE);
+            if (packageName instanceof String) {
+                addProvider((String) packageName, bundle);
+            }
+        }
+    }
+
+    private synchronized void addProvider(String packageName, Bundle bundle) {
+        List<Bundle> providers = packages.computeIfAbsent(packageName, name -> new ArrayList<>());
+        if (!providers.contains(bundle)) {
+            providers.add(bundle);
+        }
+    }
+
+    private synchronized void remove(Bundle bundle) {
+        packages.values().removeIf(providers -> providers.remove(bundle) && providers.isEmpty());
+    }
+
+    private static Class<?> tryLoadClass(Bundle bundle, String name) {
+        try {
+            return bundle.loadClass(name);
+        } catch (ClassNotFoundException | IllegalStateException e) {
+            // not visible from this bundle, or the bundle has just been uninstalled
+            return null;
+        }
+    }
+
+    private static String packageName(String className) {
+        int index = className.lastIndexOf('.');
+        return index > 0 ? className.substring(0, index) : "";
+    }
+}
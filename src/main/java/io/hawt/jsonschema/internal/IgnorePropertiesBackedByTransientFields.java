@@ -4,7 +4,6 @@ import java.beans.Introspector;
 import java.lang.reflect.Field;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -87,15 +86,11 @@ public class IgnorePropertiesBackedByTransientFields
      * @return
      */
     protected boolean isGetterMethodWithFieldVisible(Object method, String fieldName, Class<?> declaringClass) {
-        Field field = findField(fieldName, declaringClass);
-        if (field != null) {
-            int fieldModifiers = field.getModifiers();
-            if (Modifier.isTransient(fieldModifiers)) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("Ignoring getter " + method + " due to transient field called " + fieldName);
-                }
-                return false;
+        if (TransientFields.isTransient(declaringClass, fieldName)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Ignoring getter " + method + " due to transient field called " + fieldName);
             }
+            return false;
         }
         return true;
     }
@@ -219,17 +214,13 @@ public class IgnorePropertiesBackedByTransientFields
         }
     }
 
+    /**
+     * @deprecated use {@link TransientFields#findField(String, Class)}, or
+     *             {@link TransientFields#isTransient(Class, String)} which caches its answer
+     */
+    @Deprecated
     protected static Field findField(String fieldName, Class<?> declaringClass) {
-        try {
-            return declaringClass.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException e) {
-            Class<?> superclass = declaringClass.getSuperclass();
-            if (superclass != null && superclass != declaringClass) {
-                return findField(fieldName, superclass);
-            } else {
-                return null;
-            }
-        }
+        return TransientFields.findField(fieldName, declaringClass);
     }
 
 }
@@ -0,0 +1,185 @@
+package io.hawt.jsonschema.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size bounded cache of the generated JSON schemas, evicting the least recently
+ * used ones. Schemas are keyed by the name and the class loader of their class, so
+ * the same class loaded by two bundles gets two entries, and remember the bundle
+ * owning the class so they can be dropped when it is updated or uninstalled.
+ * <p/>
+ * A schema is only cached when nothing was invalidated while it was being generated,
+ * as it may have been generated from the classes or customizers just dropped.
+ */
+public class SchemaCache {
+
+    /**
+     * Bundle id of the schemas of classes not loaded from a bundle
+     */
+    public static final long NO_BUNDLE = -1;
+
+    private static class Key {
+        private final String name;
+        private final ClassLoader classLoader;
+
+        Key(Class<?> clazz) {
+            this.name = clazz.getName();
+            this.classLoader = clazz.getClassLoader();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return name.equals(other.name) && classLoader == other.classLoader;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + System.identityHashCode(classLoader);
+        }
+    }
+
+    private static class Entry {
+        private final String schema;
+        private final long bundleId;
+
+        Entry(String schema, long bundleId) {
+            this.schema = schema;
+            this.bundleId = bundleId;
+        }
+    }
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private int maxSize;
+
+    /**
+     * Number of invalidations so far
+     */
+    private long invalidations;
+
+    public SchemaCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached schema of the class, null when it has to be generated
+     */
+    public synchronized String get(Class<?> clazz) {
+        Entry entry = entries.get(new Key(clazz));
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.schema;
+    }
+
+    /**
+     * Whether the schema of the class is cached, which counts neither as a hit nor as a miss
+     */
+    public synchronized boolean contains(Class<?> clazz) {
+        return entries.containsKey(new Key(clazz));
+    }
+
+    /**
+     * Returns the stamp to cache a schema generated from now on with
+     */
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    /**
+     * Caches the schema of the class, unless something was invalidated since the given stamp
+     */
+    public synchronized void put(Class<?> clazz, long bundleId, String schema, long stamp) {
+        if (maxSize > 0 && stamp == invalidations) {
+            entries.put(new Key(clazz), new Entry(schema, bundleId));
+        }
+    }
+
+    /**
+     * Drops the schemas of the classes owned by the given bundle
+     */
+    public synchronized void invalidateBundle(long bundleId) {
+        invalidations++;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().bundleId == bundleId) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops the schemas of the classes of the given name, whatever loaded them
+     */
+    public synchronized void invalidateClass(String name) {
+        invalidations++;
+        entries.keySet().removeIf(key -> key.name.equals(name));
+    }
+
+    /**
+     * Drops all the schemas, keeping the hit and miss counts
+     */
+    public synchronized void invalidate() {
+        invalidations++;
+        entries.clear();
+    }
+
+    /**
+     * Drops all the schemas and resets the hit and miss counts
+     */
+    public synchronized void clear() {
+        invalidate();
+        resetStatistics();
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of cached schemas, 0 not to cache any
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        Iterator<Key> iterator = entries.keySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
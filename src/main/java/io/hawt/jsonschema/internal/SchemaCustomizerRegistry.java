@@ -0,0 +1,231 @@
+package io.hawt.jsonschema.internal;
+
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import io.hawt.jsonschema.internal.customizers.JsonSchemaCustomizer;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Knows the {@link JsonSchemaCustomizer} of every class. The customizers registered
+ * through {@link ServiceLoader} or as OSGi services are collected up front, the others
+ * are looked up once by their conventional name. Both the customizer found for a class
+ * and the lack of one are remembered, until a customizer of that class comes or goes.
+ */
+public class SchemaCustomizerRegistry implements ServiceListener {
+    private static final transient Logger LOG = LoggerFactory.getLogger(SchemaCustomizerRegistry.class);
+
+    /**
+     * Stands for the classes without customizer
+     */
+    private static final JsonSchemaCustomizer NONE = new JsonSchemaCustomizer() {
+    };
+
+    private static class Resolved {
+        private final long change;
+        private final JsonSchemaCustomizer customizer;
+
+        Resolved(long change, JsonSchemaCustomizer customizer) {
+            this.change = change;
+            this.customizer = customizer;
+        }
+    }
+
+    private final Function<String, Class<?>> classLoader;
+
+    private final Consumer<String> onChange;
+
+    private final Map<String, JsonSchemaCustomizer> registered = new ConcurrentHashMap<>();
+
+    private final Map<ServiceReference<?>, JsonSchemaCustomizer> services = new ConcurrentHashMap<>();
+
+    /**
+     * Numbers the changes of the customizers
+     */
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * The last change of the customizer of each class name, for the classes whose customizer
+     * changed since they got resolved
+     */
+    private final Map<String, Long> lastChanges = new ConcurrentHashMap<>();
+
+    private final ClassValue<Resolved> resolved = new ClassValue<>() {
+        @Override
+        protected Resolved computeValue(Class<?> type) {
+            long current = lastChange(type.getName());
+            JsonSchemaCustomizer customizer = registered.get(type.getName());
+            if (customizer == null) {
+                customizer = conventionalCustomizer(type);
+            }
+            return new Resolved(current, customizer);
+        }
+    };
+
+    private BundleContext bundleContext;
+
+    /**
+     * @param classLoader loads a class by name, returning null when it cannot be found
+     * @param onChange    called with the name of the class whenever its customizer may have changed
+     */
+    public SchemaCustomizerRegistry(Function<String, Class<?>> classLoader, Consumer<String> onChange) {
+        this.classLoader = classLoader;
+        this.onChange = onChange;
+        for (JsonSchemaCustomizer customizer : ServiceLoader.load(JsonSchemaCustomizer.class,
+                JsonSchemaCustomizer.class.getClassLoader())) {
+            register(customizer);
+        }
+    }
+
+    /**
+     * Returns the customizer of the class, one leaving the schema as it is when the class has none
+     */
+    public JsonSchemaCustomizer customizerFor(Class<?> clazz) {
+        Resolved entry = resolved.get(clazz);
+        if (entry.change != lastChange(clazz.getName())) {
+            resolved.remove(clazz);
+            entry = resolved.get(clazz);
+        }
+        return entry.customizer;
+    }
+
+    /**
+     * Whether the customizer stands for the lack of one
+     */
+    public static boolean isNone(JsonSchemaCustomizer customizer) {
+        return customizer == NONE;
+    }
+
+    public void register(JsonSchemaCustomizer customizer) {
+        String className = customizer.getCustomizedClassName();
+        if (className == null) {
+            LOG.warn("Ignoring schema customizer {} which does not tell the class it customizes",
+                    customizer.getClass().getName());
+            return;
+        }
+        registered.put(className, customizer);
+        invalidate(className);
+    }
+
+    public void unregister(JsonSchemaCustomizer customizer) {
+        String className = customizer.getCustomizedClassName();
+        if (className != null && registered.remove(className, customizer)) {
+            invalidate(className);
+        }
+    }
+
+    /**
+     * Looks for the customizers following the naming convention in a bundle just resolved,
+     * which may now be found for classes already known to have none. The bundles holding
+     * none change nothing.
+     */
+    public void bundleResolved(Bundle bundle) {
+        String path = JsonSchemaCustomizer.PACKAGE_PREFIX.replace('.', '/');
+        String suffix = JsonSchemaCustomizer.CLASS_SUFFIX + ".class";
+        Enumeration<URL> entries = bundle.findEntries(path, "*" + suffix, true);
+        while (entries != null && entries.hasMoreElements()) {
+            String entry = entries.nextElement().getPath();
+            int start = entry.indexOf(path);
+            if (start >= 0) {
+                invalidate(entry.substring(start + path.length(), entry.length() - suffix.length()).replace('/', '.'));
+            }
+        }
+    }
+
+    /**
+     * Forgets the customizer resolved for the class, as it may have come or gone. The
+     * other classes keep theirs.
+     */
+    private void invalidate(String className) {
+        lastChanges.put(className, changes.incrementAndGet());
+        onChange.accept(className);
+    }
+
+    private long lastChange(String className) {
+        return lastChanges.getOrDefault(className, 0L);
+    }
+
+    /**
+     * Starts following the customizers registered as OSGi services
+     */
+    public synchronized void open(BundleContext bundleContext) throws InvalidSyntaxException {
+        this.bundleContext = bundleContext;
+        String filter = "(objectClass=" + JsonSchemaCustomizer.class.getName() + ")";
+        bundleContext.addServiceListener(this, filter);
+        ServiceReference<?>[] references = bundleContext.getServiceReferences(JsonSchemaCustomizer.class.getName(), null);
+        for (ServiceReference<?> reference : references != null ? references : new ServiceReference<?>[0]) {
+            addService(reference);
+        }
+    }
+
+    public synchronized void close() {
+        if (bundleContext == null) {
+            return;
+        }
+        bundleContext.removeServiceListener(this);
+        for (ServiceReference<?> reference : services.keySet()) {
+            removeService(reference);
+        }
+        bundleContext = null;
+    }
+
+    @Override
+    public synchronized void serviceChanged(ServiceEvent event) {
+        if (bundleContext == null) {
+            return;
+        }
+        switch (event.getType()) {
+            case ServiceEvent.REGISTERED:
+                addService(event.getServiceReference());
+                break;
+            case ServiceEvent.UNREGISTERING:
+                removeService(event.getServiceReference());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void addService(ServiceReference<?> reference) {
+        Object service = bundleContext.getService(reference);
+        if (service instanceof JsonSchemaCustomizer) {
+            services.put(reference, (JsonSchemaCustomizer) service);
+            register((JsonSchemaCustomizer) service);
+        }
+    }
+
+    private void removeService(ServiceReference<?> reference) {
+        JsonSchemaCustomizer customizer = services.remove(reference);
+        if (customizer != null) {
+            unregister(customizer);
+            bundleContext.ungetService(reference);
+        }
+    }
+
+    private JsonSchemaCustomizer conventionalCustomizer(Class<?> clazz) {
+        Class<?> customizerClass = classLoader.apply(
+                JsonSchemaCustomizer.PACKAGE_PREFIX + clazz.getName() + JsonSchemaCustomizer.CLASS_SUFFIX);
+        if (customizerClass == null || !JsonSchemaCustomizer.class.isAssignableFrom(customizerClass)) {
+            return NONE;
+        }
+        try {
+            return (JsonSchemaCustomizer) customizerClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            LOG.warn("Failed to create schema customizer " + customizerClass.getName(), e);
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.hawt.jsonschema.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histogram of the schema lookups, cheap enough to be always on:
+ * recording never takes a lock. The latencies are counted in buckets whose bounds double
+ * from 1 microsecond up, so the percentiles are reported as the upper bound of the bucket
+ * they fall in, that is within a factor of two.
+ */
+public class SchemaLookupMetrics {
+
+    /**
+     * Buckets of latencies up to 2^i microseconds, the last one taking everything longer
+     */
+    private static final int BUCKETS = 32;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder classResolutionFailures = new LongAdder();
+
+    private final LongAdder customizerHits = new LongAdder();
+
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+
+    private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a lookup which took the given time
+     */
+    public void recordRequest(long nanos) {
+        requests.increment();
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        latencies.incrementAndGet(bucket(micros));
+        maxLatency.accumulate(micros);
+    }
+
+    public void recordClassResolutionFailure() {
+        classResolutionFailures.increment();
+    }
+
+    public void recordCustomizerHit() {
+        customizerHits.increment();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getClassResolutionFailures() {
+        return classResolutionFailures.sum();
+    }
+
+    public long getCustomizerHits() {
+        return customizerHits.sum();
+    }
+
+    public long getMaxLatencyMicros() {
+        return maxLatency.get();
+    }
+
+    /**
+     * Returns the latency in microseconds below which the given fraction of the lookups completed
+     */
+    public long getLatencyPercentileMicros(double fraction) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latencies.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // the bucket bound may exceed the slowest lookup
+                return Math.min(1L << i, getMaxLatencyMicros());
+            }
+        }
+        return getMaxLatencyMicros();
+    }
+
+    public void reset() {
+        requests.reset();
+        classResolutionFailures.reset();
+        customizerHits.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            latencies.set(i, 0);
+        }
+        maxLatency.reset();
+    }
+
+    private static int bucket(long micros) {
+        if (micros <= 1) {
+            return 0;
+        }
+        // smallest i such that micros <= 2^i
+        return Math.min(64 - Long.numberOfLeadingZeros(micros - 1), BUCKETS - 1);
+    }
+}
@@ -0,0 +1,217 @@
+package io.hawt.jsonschema.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates the schemas of a configured list of classes in the background, so the
+ * first lookups after startup do not pay for the introspection and class loading.
+ * The list holds class names and package prefixes written as <tt>com.foo.*</tt>,
+ * which stand for all the classes of the package and its sub-packages.
+ * <p/>
+ * The schemas are generated one after the other, and no more of them than the
+ * schema cache holds, as the later ones would only evict the earlier ones.
+ */
+public class SchemaWarmUp {
+    private static final transient Logger LOG = LoggerFactory.getLogger(SchemaWarmUp.class);
+
+    public enum State {
+        SCANNING, RUNNING, COMPLETED, STOPPED
+    }
+
+    /**
+     * Lists the classes of a package and its sub-packages
+     */
+    @FunctionalInterface
+    public interface PackageScanner {
+        Collection<String> classNames(String packageName) throws IOException;
+    }
+
+    private final List<String> patterns;
+
+    private final int maxClasses;
+
+    private final AtomicInteger total = new AtomicInteger();
+
+    private final AtomicInteger done = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private volatile State state = State.SCANNING;
+
+    private volatile long started;
+
+    private volatile long finished;
+
+    /**
+     * @param maxClasses the number of classes warmed up at most, which is the size of the schema cache
+     */
+    public SchemaWarmUp(List<String> patterns, int maxClasses) {
+        this.patterns = patterns;
+        this.maxClasses = maxClasses;
+    }
+
+    /**
+     * Splits a comma or whitespace separated list of class names and package prefixes
+     */
+    public static List<String> parse(String value) {
+        List<String> patterns = new ArrayList<>();
+        for (String pattern : value.split("[,\\s]+")) {
+            if (!pattern.isEmpty()) {
+                patterns.add(pattern);
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Resolves the classes to warm up and generates their schemas on the executor, returning
+     * straight away. The executor should be dedicated to the warm-up, which keeps one of its
+     * threads busy until done, so that the lookups never wait behind it.
+     */
+    public void start(Executor executor, PackageScanner scanner, Consumer<String> lookup) {
+        started = System.currentTimeMillis();
+        try {
+            executor.execute(() -> generate(classNames(scanner), lookup));
+        } catch (RejectedExecutionException e) {
+            stop();
+        }
+    }
+
+    private Set<String> classNames(PackageScanner scanner) {
+        Set<String> classNames = new LinkedHashSet<>();
+        for (String pattern : patterns) {
+            if (!pattern.endsWith(".*")) {
+                classNames.add(pattern);
+                continue;
+            }
+            try {
+                classNames.addAll(scanner.classNames(pattern.substring(0, pattern.length() - 2)));
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Failed to list the classes of {} to warm up", pattern, e);
+            }
+        }
+        return classNames;
+    }
+
+    private void generate(Set<String> classNames, Consumer<String> lookup) {
+        List<String> selected = new ArrayList<>(classNames);
+        if (selected.size() > maxClasses) {
+            LOG.warn("Warming up the schemas of {} of the {} classes matching {} only, as no more are cached",
+                    maxClasses, selected.size(), patterns);
+            selected = selected.subList(0, maxClasses);
+        }
+        total.set(selected.size());
+        state = State.RUNNING;
+        for (String className : selected) {
+            if (Thread.currentThread().isInterrupted()) {
+                stop();
+                return;
+            }
+            try {
+                lookup.accept(className);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                LOG.debug("Failed to warm up the schema of {}", className, e);
+            }
+            done.incrementAndGet();
+        }
+        complete();
+    }
+
+    private void complete() {
+        finished = System.currentTimeMillis();
+        state = State.COMPLETED;
+        LOG.info("Warmed up {} JSON schemas in {} ms, {} failed", done.get(), finished - started, failed.get());
+    }
+
+    private void stop() {
+        finished = System.currentTimeMillis();
+        state = State.STOPPED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Describes the progress of the warm-up
+     */
+    public String getStatus() {
+        long elapsed = (state == State.COMPLETED || state == State.STOPPED ? finished : System.currentTimeMillis())
+                - started;
+        return String.format("%s: %d of %d schemas generated, %d failed, %d ms",
+                state, done.get(), total.get(), failed.get(), elapsed);
+    }
+
+    /**
+     * Lists the classes of a package and its sub-packages found by the class loader,
+     * in directories or jars
+     */
+    public static Collection<String> scanClassPath(ClassLoader classLoader, String packageName) throws IOException {
+        String path = packageName.replace('.', '/');
+        Set<String> classNames = new TreeSet<>();
+        Enumeration<URL> urls = classLoader.getResources(path);
+        for (URL url : Collections.list(urls)) {
+            if ("file".equals(url.getProtocol())) {
+                Path dir;
+                try {
+                    dir = Paths.get(url.toURI());
+                } catch (URISyntaxException e) {
+                    throw new IOException(e);
+                }
+                try (Stream<Path> files = Files.walk(dir)) {
+                    files.forEach(file -> addClassName(classNames,
+                            path + "/" + dir.relativize(file).toString().replace(File.separatorChar, '/')));
+                }
+            } else if ("jar".equals(url.getProtocol())) {
+                URLConnection connection = url.openConnection();
+                connection.setUseCaches(false);
+                try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+                    for (JarEntry entry : Collections.list(jar.entries())) {
+                        if (entry.getName().startsWith(path + "/")) {
+                            addClassName(classNames, entry.getName());
+                        }
+                    }
+                }
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * Adds the name of the class stored at the given path, skipping nested classes
+     * and the package and module descriptors
+     */
+    static void addClassName(Collection<String> classNames, String path) {
+        if (!path.endsWith(".class") || path.contains("$") || path.endsWith("-info.class")) {
+            return;
+        }
+        classNames.add(path.substring(0, path.length() - ".class".length()).replace('/', '.'));
+    }
+}
@@ -0,0 +1,59 @@
+package io.hawt.jsonschema.internal;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Knows which field names of a class resolve to a transient field, looking the name up
+ * from the class towards its super classes like {@link Class#getDeclaredField(String)}
+ * walked up the hierarchy would. The names are computed once per class and kept along
+ * with the class in a {@link ClassValue}, which does not prevent its class loader from
+ * being collected.
+ */
+public final class TransientFields {
+
+    private static final ClassValue<Set<String>> TRANSIENT_FIELDS = new ClassValue<>() {
+        @Override
+        protected Set<String> computeValue(Class<?> type) {
+            Class<?> superclass = type.getSuperclass();
+            Set<String> names = superclass != null ? new HashSet<>(TRANSIENT_FIELDS.get(superclass)) : new HashSet<>();
+            // the fields of the class hide those of the same name in its super classes
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isTransient(field.getModifiers())) {
+                    names.add(field.getName());
+                } else {
+                    names.remove(field.getName());
+                }
+            }
+            return names.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(names);
+        }
+    };
+
+    private TransientFields() {
+    }
+
+    /**
+     * Whether the field of the given name, as seen from the class, is transient
+     */
+    public static boolean isTransient(Class<?> declaringClass, String fieldName) {
+        return TRANSIENT_FIELDS.get(declaringClass).contains(fieldName);
+    }
+
+    /**
+     * Returns the field of the given name declared by the class or the closest of its super
+     * classes, or null if there is none
+     */
+    public static Field findField(String fieldName, Class<?> declaringClass) {
+        for (Class<?> type = declaringClass; type != null; type = type.getSuperclass()) {
+            try {
+                return type.getDeclaredField(fieldName);
+            } catch (NoSuchFieldException e) {
+                // look further up the hierarchy
+            }
+        }
+        return null;
+    }
+}
@@ -23,9 +23,18 @@ import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
  * classes by convention: for example, after generating Json Schema for
  * "java.lang.String" class, it looks for a class named
  * "io.hawt.jsonschema.internal.customizers.java.lang.StringSchemaCustomizer"
+ * <p/>
+ * Customizers may also be registered through {@link java.util.ServiceLoader} or as
+ * OSGi services, in which case {@link #getCustomizedClassName()} tells the class
+ * they apply to. A single instance is shared by all the lookups, so customizers
+ * must not keep any state.
  */
 public abstract class JsonSchemaCustomizer {
 
+    public static final String PACKAGE_PREFIX = JsonSchemaCustomizer.class.getPackage().getName() + ".";
+
+    public static final String CLASS_SUFFIX = "SchemaCustomizer";
+
     /**
      * Changes Json Schema generated by
      * {@link com.fasterxml.jackson.module.jsonSchema.factories.SchemaFactoryWrapper}
@@ -37,4 +46,18 @@ public abstract class JsonSchemaCustomizer {
         return originalSchema;
     }
 
+    /**
+     * Returns the name of the class whose schema this customizer alters. By default it is
+     * derived from the name of the customizer, following the naming convention.
+     *
+     * @return the class name, null when the customizer does not follow the convention
+     */
+    public String getCustomizedClassName() {
+        String name = getClass().getName();
+        if (!name.startsWith(PACKAGE_PREFIX) || !name.endsWith(CLASS_SUFFIX)) {
+            return null;
+        }
+        return name.substring(PACKAGE_PREFIX.length(), name.length() - CLASS_SUFFIX.length());
+    }
+
 }
@@ -1,18 +1,33 @@
 package io.hawt.camelcatalog.maven.plugin;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.JarURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import io.hawt.camelcatalog.maven.plugin.util.Cbor;
+import io.hawt.camelcatalog.maven.plugin.util.FileHelper;
 import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.logging.console.ConsoleLogger;
@@ -22,7 +37,9 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -54,7 +71,11 @@ public class CamelModelGeneratorTest {
     }
 
     private JsonObject validJson(String filename) throws IOException {
-        File jsonFile = new File(schemaDir, filename);
+        return validJson(schemaDir, filename);
+    }
+
+    private JsonObject validJson(File dir, String filename) throws IOException {
+        File jsonFile = new File(dir, filename);
         assertTrue(jsonFile.exists());
         String content = Files.readString(jsonFile.toPath());
         assertFalse(content.isEmpty());
@@ -139,6 +160,513 @@ public class CamelModelGeneratorTest {
         checkForNulls(components);
     }
 
+    @Test
+    public void testParallelGenerator() throws Exception {
+        File sequentialDir = new File(TARGET_DIR + "/schemas-sequential");
+        CamelModelGenerator sequential = new CamelModelGenerator(log, camelVersion,
+            new File(TARGET_DIR + "/camel-catalog"), sequentialDir, schemaFileName);
+        sequential.generate();
+
+        File parallelDir = new File(TARGET_DIR + "/schemas-parallel");
+        CamelModelGenerator parallel = new CamelModelGenerator(log, camelVersion,
+            new File(TARGET_DIR + "/camel-catalog"), parallelDir, schemaFileName);
+        parallel.setParallelism(4);
+        parallel.generate();
+
+        assertSameFiles(sequentialDir, parallelDir);
+    }
+
+    @Test
+    public void testGeneratorFromCatalogJar() throws Exception {
+        File dirSchemaDir = new File(TARGET_DIR + "/schemas-dir");
+        CamelModelGenerator fromDir = new CamelModelGenerator(log, camelVersion,
+            new File(TARGET_DIR + "/camel-catalog"), dirSchemaDir, schemaFileName);
+        fromDir.generate();
+
+        URL catalogResource = getClass().getClassLoader().getResource("org/apache/camel/catalog/models.properties");
+        assertNotNull(catalogResource);
+        JarURLConnection connection = (JarURLConnection) catalogResource.openConnection();
+        File catalogJar = new File(connection.getJarFileURL().toURI());
+
+        File jarSchemaDir = new File(TARGET_DIR + "/schemas-jar");
+        CamelModelGenerator fromJar = new CamelModelGenerator(log, camelVersion,
+            catalogJar, jarSchemaDir, schemaFileName);
+        fromJar.generate();
+
+        assertSameFiles(dirSchemaDir, jarSchemaDir);
+    }
+
+    @Test
+    public void testFingerprint() throws Exception {
+        File catalogDir = new File(TARGET_DIR + "/camel-catalog");
+        CamelModelGenerator generator = new CamelModelGenerator(log, camelVersion, catalogDir, schemaDir, schemaFileName);
+        CamelModelGenerator same = new CamelModelGenerator(log, camelVersion, catalogDir, schemaDir, schemaFileName);
+        CamelModelGenerator other = new CamelModelGenerator(log, camelVersion, catalogDir, schemaDir, "other-model.js");
+
+        assertEquals(generator.fingerprint(), same.fingerprint());
+        assertNotEquals(generator.fingerprint(), other.fingerprint());
+        assertFalse(other.isGenerated());
+    }
+
+    @Test
+    public void testIncrementalGenerator() throws Exception {
+        File catalogDir = new File(TARGET_DIR + "/camel-catalog");
+        File workDir = new File(TARGET_DIR + "/camel-model-work");
+        File incrementalDir = new File(TARGET_DIR + "/schemas-incremental");
+
+        CamelModelGenerator generator = new CamelModelGenerator(log, camelVersion, catalogDir, incrementalDir, schemaFileName);
+        generator.setWorkDir(workDir);
+        generator.generate();
+
+        File components = new File(incrementalDir, "components-camel-model.json");
+        assertTrue(components.setLastModified(0));
+        assertTrue(new File(incrementalDir, "rests-camel-model.json").delete());
+
+        CamelModelGenerator again = new CamelModelGenerator(log, camelVersion, catalogDir, incrementalDir, schemaFileName);
+        again.setWorkDir(workDir);
+        again.generate();
+
+        // only the missing group is written again
+        assertEquals(0, components.lastModified());
+        assertTrue(new File(incrementalDir, "rests-camel-model.json").exists());
+
+        // another plugin may write the groups differently, none of them is kept
+        CamelModelGenerator upgraded = new CamelModelGenerator(log, camelVersion, catalogDir, incrementalDir, schemaFileName);
+        upgraded.setWorkDir(workDir);
+        upgraded.setPluginVersion("2.0.0");
+        assertNotEquals(again.fingerprint(), upgraded.fingerprint());
+        upgraded.generate();
+        assertNotEquals(0, components.lastModified());
+
+        File fullDir = new File(TARGET_DIR + "/schemas-full");
+        new CamelModelGenerator(log, camelVersion, catalogDir, fullDir, schemaFileName).generate();
+        assertSameFiles(fullDir, incrementalDir);
+    }
+
+    @Test
+    public void testTruncatedFragments() throws Exception {
+        File catalogDir = new File(TARGET_DIR + "/camel-catalog");
+        File workDir = new File(TARGET_DIR + "/camel-model-work-truncated");
+        File truncatedDir = new File(TARGET_DIR + "/schemas-truncated");
+        FileHelper.delete(workDir.toPath());
+
+        CamelModelGenerator generator = new CamelModelGenerator(log, camelVersion, catalogDir, truncatedDir, schemaFileName);
+        generator.setWorkDir(workDir);
+        generator.generate();
+
+        // as left by a build killed while writing them
+        File[] fragments = new File(workDir, "fragments").listFiles();
+        assertNotNull(fragments);
+        for (File fragment : fragments) {
+            String json = Files.readString(fragment.toPath());
+            Files.writeString(fragment.toPath(), json.substring(0, json.length() / 2));
+        }
+        assertTrue(new File(truncatedDir, "definitions-camel-model.json").delete());
+        assertTrue(new File(truncatedDir, "components-camel-model.json").delete());
+
+        CamelModelGenerator again = new CamelModelGenerator(log, camelVersion, catalogDir, truncatedDir, schemaFileName);
+        again.setWorkDir(workDir);
+        again.generate();
+
+        File fullDir = new File(TARGET_DIR + "/schemas-full");
+        new CamelModelGenerator(log, camelVersion, catalogDir, fullDir, schemaFileName).generate();
+        assertSameFiles(fullDir, truncatedDir);
+    }
+
+    @Test
+    public void testCachedGenerator() throws Exception {
+        File cacheDir = new File(TARGET_DIR + "/camel-model-cache");
+        ModelCache cache = new ModelCache(cacheDir, TimeUnit.DAYS.toMillis(1), 1024 * 1024 * 1024);
+
+        File cachedDir = new File(TARGET_DIR + "/schemas-cached");
+        CamelModelGenerator generator = new CamelModelGenerator(log, camelVersion,
+            new File(TARGET_DIR + "/camel-catalog"), cachedDir, schemaFileName);
+        generator.setCache(cache);
+        generator.generate();
+
+        // an empty catalog can only be generated from the cache
+        File emptyCatalog = new File(TARGET_DIR + "/empty-camel-catalog");
+        assertTrue(emptyCatalog.isDirectory() || emptyCatalog.mkdirs());
+        File restoredDir = new File(TARGET_DIR + "/schemas-restored");
+        CamelModelGenerator restored = new CamelModelGenerator(log, camelVersion,
+            emptyCatalog, restoredDir, schemaFileName);
+        restored.setCache(cache);
+        restored.generate();
+
+        assertSameFiles(cachedDir, restoredDir);
+
+        // the models cached by another plugin are never restored
+        File upgradedDir = new File(TARGET_DIR + "/schemas-upgraded");
+        CamelModelGenerator upgraded = new CamelModelGenerator(log, camelVersion,
+            emptyCatalog, upgradedDir, schemaFileName);
+        upgraded.setCache(cache);
+        upgraded.setPluginVersion("2.0.0");
+        assertThrows(MojoFailureException.class, upgraded::generate);
+        assertFalse(upgraded.isGenerated());
+    }
+
+    @Test
+    public void testRestoredThenIncrementalGenerator() throws Exception {
+        File catalogDir = new File(TARGET_DIR + "/camel-catalog");
+        File cacheDir = new File(TARGET_DIR + "/camel-model-cache-switch");
+        File workDir = new File(TARGET_DIR + "/camel-model-work-switch");
+        File switchedDir = new File(TARGET_DIR + "/schemas-switched");
+        FileHelper.delete(cacheDir.toPath());
+        FileHelper.delete(workDir.toPath());
+        FileHelper.delete(switchedDir.toPath());
+
+        // another catalog, one of the models of which describes itself differently
+        File otherCatalogDir = new File(TARGET_DIR + "/other-camel-catalog");
+        FileHelper.copy(catalogDir.toPath(), otherCatalogDir.toPath());
+        File model = new File(otherCatalogDir, "org/apache/camel/catalog/models/to.json");
+        Files.writeString(model.toPath(),
+            Files.readString(model.toPath()).replaceFirst("\"description\": \"", "\"description\": \"Other "));
+        String otherVersion = camelVersion + "-other";
+
+        ModelCache cache = new ModelCache(cacheDir, TimeUnit.DAYS.toMillis(1), 1024 * 1024 * 1024);
+        generate(otherVersion, otherCatalogDir, switchedDir, workDir, cache, false);
+        generate(camelVersion, catalogDir, switchedDir, workDir, cache, true);
+        assertTrue(new File(switchedDir, "definitions-camel-model.json.gz").exists());
+
+        // restored from the cache, without the compressed copies the options no longer produce
+        generate(otherVersion, otherCatalogDir, switchedDir, workDir, cache, false);
+        assertFalse(new File(switchedDir, "definitions-camel-model.json.gz").exists());
+
+        // restoring the other catalog over the files of the manifest
+        generate(camelVersion, catalogDir, switchedDir, workDir, cache, false);
+        generate(otherVersion, otherCatalogDir, switchedDir, workDir, cache, false);
+
+        // missing the cache, the catalog is generated again rather than taken as up to date
+        FileHelper.delete(cacheDir.toPath());
+        generate(camelVersion, catalogDir, switchedDir, workDir, cache, false);
+
+        File cleanDir = new File(TARGET_DIR + "/schemas-clean");
+        new CamelModelGenerator(log, camelVersion, catalogDir, cleanDir, schemaFileName).generate();
+        assertSameFiles(cleanDir, switchedDir);
+    }
+
+    private void generate(String version, File catalogDir, File dir, File workDir, ModelCache cache,
+                          boolean compress) throws Exception {
+        CamelModelGenerator generator = new CamelModelGenerator(log, version, catalogDir, dir, schemaFileName);
+        generator.setWorkDir(workDir);
+        generator.setCache(cache);
+        generator.setCompress(compress);
+        generator.generate();
+    }
+
+    @Test
+    public void testCompactCompressedGenerator() throws Exception {
+        File catalogDir = new File(TARGET_DIR + "/camel-catalog");
+        File prettyDir = new File(TARGET_DIR + "/schemas-pretty");
+        new CamelModelGenerator(log, camelVersion, catalogDir, prettyDir, schemaFileName).generate();
+
+        File compactDir = new File(TARGET_DIR + "/schemas-compact");
+        CamelModelGenerator generator = new CamelModelGenerator(log, camelVersion, catalogDir, compactDir, schemaFileName);
+        generator.setCompact(true);
+        generator.setCompress(true);
+        generator.generate();
+
+        for (String group : new String[] { "definitions", "rests", "dataformats", "languages", "components" }) {
+            File pretty = new File(prettyDir, group + "-camel-model.json");
+            File compact = new File(compactDir, group + "-camel-model.json");
+            assertTrue(compact.length() < pretty.length(), group);
+            assertEquals(JsonParser.parseString(Files.readString(pretty.toPath())),
+                JsonParser.parseString(Files.readString(compact.toPath())), group);
+
+            File compressed = new File(compactDir, group + "-camel-model.json.gz");
+            try (InputStream in = new GZIPInputStream(new FileInputStream(compressed))) {
+                assertEquals(Files.readString(compact.toPath()), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertTrue(generator.isGenerated());
+
+        // the compressed copies go away along with the option
+        CamelModelGenerator uncompressed = new CamelModelGenerator(log, camelVersion, catalogDir, compactDir, schemaFileName);
+        uncompressed.setCompact(true);
+        assertNotEquals(generator.fingerprint(), uncompressed.fingerprint());
+        uncompressed.generate();
+        assertFalse(new File(compactDir, "components-camel-model.json.gz").exists());
+    }
+
+    @Test
+    public void testUncommittedGroup() throws Exception {
+        File uncommittedDir = new File(TARGET_DIR + "/schemas-uncommitted");
+        assertTrue(uncommittedDir.isDirectory() || uncommittedDir.mkdirs());
+        Gson gson = new Gson();
+        GroupSchemaWriter.Options options = new GroupSchemaWriter.Options().compress(true).shard(true);
+
+        JsonObject schema = new JsonObject();
+        schema.addProperty("title", "Log");
+        try (GroupSchemaWriter writer = new GroupSchemaWriter(gson, uncommittedDir, "definitions", options)) {
+            writer.add("log", schema);
+            writer.commit();
+        }
+        String committed = Files.readString(new File(uncommittedDir, "definitions-camel-model.json").toPath());
+
+        // a group failing halfway through leaves the files of the last time untouched
+        try (GroupSchemaWriter writer = new GroupSchemaWriter(gson, uncommittedDir, "definitions", options)) {
+            writer.add("to", schema);
+        }
+        assertEquals(committed, Files.readString(new File(uncommittedDir, "definitions-camel-model.json").toPath()));
+        assertTrue(new File(uncommittedDir, "definitions-camel-model/log.json").exists());
+        assertFalse(new File(uncommittedDir, "definitions-camel-model/to.json").exists());
+        String[] temporary = uncommittedDir.list((dir, name) -> name.endsWith(".tmp"));
+        assertEquals(0, Objects.requireNonNull(temporary).length);
+    }
+
+    @Test
+    public void testDeduplicatedGenerator() throws Exception {
+        File catalogDir = new File(TARGET_DIR + "/camel-catalog");
+        File fullDir = new File(TARGET_DIR + "/schemas-duplicated");
+        new CamelModelGenerator(log, camelVersion, catalogDir, fullDir, schemaFileName).generate();
+
+        File deduplicatedDir = new File(TARGET_DIR + "/schemas-deduplicated");
+        CamelModelGenerator generator = new CamelModelGenerator(log, camelVersion, catalogDir, deduplicatedDir, schemaFileName);
+        generator.setDeduplicate(true);
+        generator.generate();
+
+        for (String group : new String[] { "definitions", "rests", "dataformats", "languages", "components" }) {
+            File full = new File(fullDir, group + "-camel-model.json");
+            File deduplicated = new File(deduplicatedDir, group + "-camel-model.json");
+            JsonObject groupFile = JsonParser.parseString(Files.readString(deduplicated.toPath())).getAsJsonObject();
+            assertNotNull(groupFile.get(GroupSchemaWriter.SHARED_PROPERTIES), group);
+            assertEquals(JsonParser.parseString(Files.readString(full.toPath())), GroupSchemaWriter.resolve(groupFile), group);
+        }
+
+        File components = new File(deduplicatedDir, "components-camel-model.json");
+        assertTrue(components.length() < new File(fullDir, "components-camel-model.json").length());
+        JsonObject shared = validJson(deduplicatedDir, "components-camel-model.json")
+            .getAsJsonObject(GroupSchemaWriter.SHARED_PROPERTIES);
+        assertTrue(shared.keySet().stream().anyMatch(id -> id.startsWith("bridgeErrorHandler-")));
+        assertTrue(Files.readString(new File(deduplicatedDir, schemaFileName).toPath()).contains("resolveSharedProperties"));
+        assertFalse(new File(deduplicatedDir, "components-camel-model.json.tmp").exists());
+    }
+
+    @Test
+    public void testDeduplicatedIds() throws Exception {
+        File deduplicatedDir = new File(TARGET_DIR + "/schemas-deduplicated-ids");
+        assertTrue(deduplicatedDir.isDirectory() || deduplicatedDir.mkdirs());
+        JsonObject group = new JsonObject();
+        for (int i = 0; i < 4; i++) {
+            // variants of a property next to a property named like them
+            JsonObject properties = new JsonObject();
+            properties.add("timeout", JsonParser.parseString("{\"type\": \"integer\", \"default\": " + i % 2 + "}"));
+            properties.add("timeout-2", JsonParser.parseString("{\"type\": \"string\"}"));
+            JsonObject schema = new JsonObject();
+            schema.add("properties", properties);
+            group.add("entry" + i, schema);
+        }
+
+        try (GroupSchemaWriter writer = new GroupSchemaWriter(new Gson(), deduplicatedDir, "components",
+            new GroupSchemaWriter.Options().deduplicate(true))) {
+            for (Entry<String, JsonElement> entry : group.entrySet()) {
+                writer.add(entry.getKey(), entry.getValue().getAsJsonObject());
+            }
+            writer.commit();
+        }
+
+        JsonObject groupFile = validJson(deduplicatedDir, "components-camel-model.json");
+        assertEquals(3, groupFile.getAsJsonObject(GroupSchemaWriter.SHARED_PROPERTIES).size());
+        assertEquals(group, GroupSchemaWriter.resolve(groupFile).getAsJsonObject("components"));
+    }
+
+    @Test
+    public void testShardedGenerator() throws Exception {
+        File catalogDir = new File(TARGET_DIR + "/camel-catalog");
+        File shardedDir = new File(TARGET_DIR + "/schemas-sharded");
+        CamelModelGenerator generator = new CamelModelGenerator(log, camelVersion, catalogDir, shardedDir, schemaFileName);
+        generator.setShard(true);
+        generator.setDeduplicate(true);
+        generator.generate();
+        assertTrue(generator.isGenerated());
+
+        for (String group : new String[] { "definitions", "rests", "dataformats", "languages", "components" }) {
+            JsonObject models = GroupSchemaWriter.resolve(validJson(shardedDir, group + "-camel-model.json"))
+                .getAsJsonObject(group);
+            JsonObject index = validJson(shardedDir, group + "-camel-model-index.json").getAsJsonObject(group);
+            assertEquals(models.keySet(), index.keySet(), group);
+            for (Entry<String, JsonElement> entry : index.entrySet()) {
+                JsonObject indexEntry = entry.getValue().getAsJsonObject();
+                JsonObject model = models.getAsJsonObject(entry.getKey());
+                assertEquals(model.get("title"), indexEntry.get("title"));
+                assertEquals(model.get("icon"), indexEntry.get("icon"));
+                assertEquals(model, validJson(shardedDir, indexEntry.get("shard").getAsString()));
+            }
+        }
+
+        // the shards go away along with the option
+        CamelModelGenerator unsharded = new CamelModelGenerator(log, camelVersion, catalogDir, shardedDir, schemaFileName);
+        unsharded.generate();
+        assertFalse(new File(shardedDir, "components-camel-model").exists());
+        assertFalse(new File(shardedDir, "components-camel-model-index.json").exists());
+    }
+
+    @Test
+    public void testLazyGenerator() throws Exception {
+        File lazyDir = new File(TARGET_DIR + "/schemas-lazy");
+        CamelModelGenerator generator = new CamelModelGenerator(log, camelVersion,
+            new File(TARGET_DIR + "/camel-catalog"), lazyDir, schemaFileName);
+        generator.setLazy(true);
+        generator.generate();
+
+        String modelFile = Files.readString(new File(lazyDir, schemaFileName).toPath());
+        assertFalse(modelFile.contains("import {"));
+        assertTrue(modelFile.contains("import('./components-camel-model.json')"));
+        assertTrue(modelFile.contains("var apacheCamelModelVersion = '" + camelVersion + "';"));
+        assertTrue(modelFile.contains("export { loadDefinitions, loadRests, loadDataformats, loadLanguages, loadComponents, "
+            + "loadCamelModel, camelModelSummary, apacheCamelModelVersion };"));
+
+        String declaration = "var camelModelSummary = ";
+        int start = modelFile.indexOf(declaration) + declaration.length();
+        JsonObject summary = JsonParser.parseString(modelFile.substring(start, modelFile.indexOf(";\n", start)))
+            .getAsJsonObject();
+        for (String group : new String[] { "definitions", "rests", "dataformats", "languages", "components" }) {
+            JsonObject models = validJson(lazyDir, group + "-camel-model.json").getAsJsonObject(group);
+            JsonArray names = new JsonArray();
+            models.keySet().forEach(names::add);
+            assertEquals(names, summary.get(group), group);
+        }
+    }
+
+    @Test
+    public void testSplitDocsGenerator() throws Exception {
+        File catalogDir = new File(TARGET_DIR + "/camel-catalog");
+        File fullDir = new File(TARGET_DIR + "/schemas-with-docs");
+        new CamelModelGenerator(log, camelVersion, catalogDir, fullDir, schemaFileName).generate();
+
+        File splitDir = new File(TARGET_DIR + "/schemas-split-docs");
+        CamelModelGenerator generator = new CamelModelGenerator(log, camelVersion, catalogDir, splitDir, schemaFileName);
+        generator.setSplitDocs(true);
+        generator.setSplitTitles(true);
+        generator.setDeduplicate(true);
+        generator.setShard(true);
+        generator.generate();
+        assertTrue(generator.isGenerated());
+
+        for (String group : new String[] { "definitions", "rests", "dataformats", "languages", "components" }) {
+            File full = new File(fullDir, group + "-camel-model.json");
+            File split = new File(splitDir, group + "-camel-model.json");
+            JsonObject groupFile = GroupSchemaWriter.resolve(validJson(splitDir, group + "-camel-model.json"));
+            JsonObject fullModels = validJson(fullDir, group + "-camel-model.json").getAsJsonObject(group);
+            JsonObject index = validJson(splitDir, group + "-camel-model-index.json").getAsJsonObject(group);
+            for (Entry<String, JsonElement> entry : groupFile.getAsJsonObject(group).entrySet()) {
+                JsonObject model = entry.getValue().getAsJsonObject();
+                assertFalse(model.has("description") || model.has("title"), entry.getKey());
+                // the shards leave the docs out as well, the index still lists the titles
+                JsonObject indexEntry = index.getAsJsonObject(entry.getKey());
+                assertEquals(model, validJson(splitDir, indexEntry.get("shard").getAsString()), entry.getKey());
+                assertEquals(fullModels.getAsJsonObject(entry.getKey()).get("title"), indexEntry.get("title"));
+                for (Entry<String, JsonElement> property : model.getAsJsonObject("properties").entrySet()) {
+                    assertFalse(property.getValue().getAsJsonObject().has("description"), property.getKey());
+                }
+            }
+            JsonObject docsFile = validJson(splitDir, group + "-camel-model-docs.json");
+            assertEquals(JsonParser.parseString(Files.readString(full.toPath())),
+                GroupSchemaWriter.mergeDocs(groupFile, docsFile), group);
+            assertTrue(split.length() < full.length(), group);
+        }
+
+        String modelFile = Files.readString(new File(splitDir, schemaFileName).toPath());
+        assertTrue(modelFile.contains("import('./components-camel-model-docs.json')"));
+        assertTrue(modelFile.contains("loadDocs, mergeDocs, apacheCamelModelVersion };"));
+
+        // the docs files go away along with the option
+        new CamelModelGenerator(log, camelVersion, catalogDir, splitDir, schemaFileName).generate();
+        assertFalse(new File(splitDir, "components-camel-model-docs.json").exists());
+        assertSameFiles(fullDir, splitDir);
+    }
+
+    @Test
+    public void testFilteredGenerator() throws Exception {
+        File catalogDir = new File(TARGET_DIR + "/camel-catalog");
+        File fullDir = new File(TARGET_DIR + "/schemas-unfiltered");
+        new CamelModelGenerator(log, camelVersion, catalogDir, fullDir, schemaFileName).generate();
+
+        File filteredDir = new File(TARGET_DIR + "/schemas-filtered");
+        CamelModelGenerator generator = new CamelModelGenerator(log, camelVersion, catalogDir, filteredDir, schemaFileName);
+        CatalogFilter filter = new CatalogFilter()
+            .include("components", "activemq, kafka*, ?ile")
+            .exclude("definitions", "*ServiceDiscovery")
+            .excludeProperties("components", "lazyStartProducer, activemq.destination*");
+        generator.setFilter(filter);
+        generator.generate();
+
+        for (String group : new String[] { "definitions", "rests", "dataformats", "languages", "components" }) {
+            JsonObject expected = validJson(fullDir, group + "-camel-model.json").getAsJsonObject(group);
+            expected.entrySet().removeIf(entry -> !"expression".equals(entry.getKey()) && !filter.accepts(group, entry.getKey()));
+            for (Entry<String, JsonElement> entry : expected.entrySet()) {
+                entry.getValue().getAsJsonObject().getAsJsonObject("properties").entrySet()
+                    .removeIf(property -> !filter.acceptsProperty(group, entry.getKey(), property.getKey()));
+            }
+            assertEquals(expected, validJson(filteredDir, group + "-camel-model.json").getAsJsonObject(group), group);
+        }
+
+        JsonObject components = validJson(filteredDir, "components-camel-model.json").getAsJsonObject("components");
+        assertTrue(components.has("activemq"));
+        assertFalse(components.getAsJsonObject("activemq").getAsJsonObject("properties").has("lazyStartProducer"));
+        assertFalse(components.getAsJsonObject("activemq").getAsJsonObject("properties").has("destinationType"));
+
+        assertFalse(filter.acceptsProperty("components", "kafka", "lazyStartProducer"));
+        assertTrue(filter.acceptsProperty("components", "kafka", "destinationType"));
+        assertTrue(filter.accepts("components", "file"));
+        assertFalse(filter.accepts("components", "files"));
+        assertNotEquals(new CamelModelGenerator(log, camelVersion, catalogDir, filteredDir, schemaFileName).fingerprint(),
+            generator.fingerprint());
+    }
+
+    @Test
+    public void testBinaryGenerator() throws Exception {
+        File catalogDir = new File(TARGET_DIR + "/camel-catalog");
+        File binaryDir = new File(TARGET_DIR + "/schemas-binary");
+        CamelModelGenerator generator = new CamelModelGenerator(log, camelVersion, catalogDir, binaryDir, schemaFileName);
+        generator.setBinary(true);
+        generator.setCompact(true);
+        generator.setCompress(true);
+        generator.generate();
+        assertTrue(generator.isGenerated());
+
+        for (String group : new String[] { "definitions", "rests", "dataformats", "languages", "components" }) {
+            File json = new File(binaryDir, group + "-camel-model.json");
+            File binary = new File(binaryDir, group + "-camel-model.cbor");
+            assertEquals(validJson(binaryDir, group + "-camel-model.json"), readCbor(new FileInputStream(binary)), group);
+            assertTrue(binary.length() < json.length(), group);
+            try (InputStream in = new GZIPInputStream(new FileInputStream(new File(binaryDir, group + "-camel-model.cbor.gz")))) {
+                assertEquals(validJson(binaryDir, group + "-camel-model.json"), readCbor(in), group);
+            }
+        }
+
+        // the binary files go away along with the option
+        new CamelModelGenerator(log, camelVersion, catalogDir, binaryDir, schemaFileName).generate();
+        assertFalse(new File(binaryDir, "components-camel-model.cbor").exists());
+        assertFalse(new File(binaryDir, "components-camel-model.cbor.gz").exists());
+    }
+
+    @Test
+    public void testCbor() throws Exception {
+        String json = "{\"text\":\"caf\u00e9 \u2603\",\"long\":\"" + "x".repeat(70000) + "\","
+            + "\"numbers\":[0,23,24,255,256,65536,4294967296,-1,-25,-4294967297,1.5,-0.25,1e300],"
+            + "\"flags\":[true,false,null],\"nested\":{\"empty\":{},\"list\":[[]]}}";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Cbor.write(new StringReader(json), out);
+        assertEquals(JsonParser.parseString(json), readCbor(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    /**
+     * Reads a CBOR document back into json, closing the stream
+     */
+    private JsonElement readCbor(InputStream in) throws IOException {
+        try (in) {
+            return JsonParser.parseString(new ObjectMapper().writeValueAsString(new CBORMapper().readTree(in)));
+        }
+    }
+
+    private void assertSameFiles(File expectedDir, File actualDir) throws IOException {
+        for (String fileName : Objects.requireNonNull(expectedDir.list())) {
+            assertEquals(Files.readString(new File(expectedDir, fileName).toPath()),
+                Files.readString(new File(actualDir, fileName).toPath()), fileName);
+        }
+    }
+
     private void checkForNulls(JsonElement jsonElement) {
         assertNotNull(jsonElement);
 
@@ -1,10 +1,47 @@
 package io.hawt.jsonschema.test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.hawt.jsonschema.SchemaLookup;
+import io.hawt.jsonschema.internal.BundleClassIndex;
+import io.hawt.jsonschema.internal.SchemaCache;
+import io.hawt.jsonschema.internal.SchemaCustomizerRegistry;
+import io.hawt.jsonschema.internal.customizers.io.hawt.jsonschema.test.objects.ObjectWithJaxbAnnotationsSchemaCustomizer;
+import io.hawt.jsonschema.test.objects.ObjectWithJaxbAnnotations;
+import io.hawt.jsonschema.test.objects.ObjectWithJsonAnnotations;
 import io.hawt.jsonschema.test.objects.ObjectWithTransientModifiers;
+import io.hawt.jsonschema.test.objects.ObjectWithValidationAnnotations;
 import org.junit.jupiter.api.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleWiring;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -29,6 +66,300 @@ public class SchemaLookupTest {
         }
     }
 
+    @Test
+    public void testSchemasForClasses() throws Exception {
+        SchemaLookup lookup = createSchemaLookup();
+        String result = lookup.getSchemasForClasses(new String[] {
+            "java.lang.String", ObjectWithTransientModifiers.class.getName(), "James" });
+
+        JsonNode json = new ObjectMapper().readTree(result);
+        assertEquals(2, json.get("schemas").size());
+        assertEquals(new ObjectMapper().readTree(lookup.getSchemaForClass("java.lang.String")),
+            json.get("schemas").get("java.lang.String"));
+        assertTrue(result.contains(lookup.getSchemaForClass("java.lang.String")));
+        assertTrue(json.get("errors").get("James").asText().contains("ClassNotFoundException"));
+    }
+
+    @Test
+    public void testWriteSchemaForClass() throws Exception {
+        SchemaLookup lookup = createSchemaLookup();
+        String name = "io.hawt.jsonschema.test.objects.ObjectWithJaxbAnnotations";
+        String schema = lookup.getSchemaForClass(name);
+
+        StringWriter pretty = new StringWriter();
+        lookup.writeSchemaForClass(name, pretty, true);
+        assertEquals(schema, pretty.toString());
+
+        ByteArrayOutputStream compact = new ByteArrayOutputStream();
+        lookup.writeSchemaForClass(name, compact, false);
+        String compactSchema = new String(compact.toByteArray(), StandardCharsets.UTF_8);
+        assertFalse(compactSchema.contains("\n"));
+        assertEquals(new ObjectMapper().readTree(schema), new ObjectMapper().readTree(compactSchema));
+    }
+
+    @Test
+    public void testConcurrentWriteSchemaForClass() throws Exception {
+        String[] names = {
+            "java.lang.String",
+            ObjectWithJaxbAnnotations.class.getName(),
+            ObjectWithJsonAnnotations.class.getName(),
+            ObjectWithTransientModifiers.class.getName(),
+            ObjectWithValidationAnnotations.class.getName() };
+
+        SchemaLookup sequential = new SchemaLookup();
+        sequential.initStandalone();
+        Map<String, String> expected = new TreeMap<>();
+        for (String name : names) {
+            expected.put(name, writeSchema(sequential, name));
+        }
+
+        // a lookup whose caches start empty, so that the threads race on filling them
+        SchemaLookup concurrent = new SchemaLookup();
+        concurrent.initStandalone();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Map<String, List<Future<String>>> results = new TreeMap<>();
+            for (int i = 0; i < threads; i++) {
+                for (String name : names) {
+                    results.computeIfAbsent(name, key -> new ArrayList<>()).add(executor.submit(() -> {
+                        start.await();
+                        return writeSchema(concurrent, name);
+                    }));
+                }
+            }
+            start.countDown();
+            for (Map.Entry<String, List<Future<String>>> result : results.entrySet()) {
+                for (Future<String> schema : result.getValue()) {
+                    assertEquals(expected.get(result.getKey()), schema.get(30, TimeUnit.SECONDS), result.getKey());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String writeSchema(SchemaLookup lookup, String name) throws Exception {
+        StringWriter out = new StringWriter();
+        lookup.writeSchemaForClass(name, out, true);
+        return out.toString();
+    }
+
+    @Test
+    public void testSchemaCache() {
+        SchemaLookup lookup = createSchemaLookup();
+        String first = lookup.getSchemaForClass(ObjectWithTransientModifiers.class.getName());
+        String second = lookup.getSchemaForClass(ObjectWithTransientModifiers.class.getName());
+        assertSame(first, second);
+        assertEquals(1, lookup.getSchemaCacheHits());
+        assertEquals(1, lookup.getSchemaCacheMisses());
+        assertEquals(1, lookup.getSchemaCacheSize());
+
+        // dropping the schemas on a configuration change keeps the statistics
+        lookup.setMapper(lookup.getMapper());
+        assertEquals(0, lookup.getSchemaCacheSize());
+        assertEquals(1, lookup.getSchemaCacheHits());
+
+        lookup.clearSchemaCache();
+        assertEquals(0, lookup.getSchemaCacheSize());
+        assertEquals(0, lookup.getSchemaCacheHits());
+        assertEquals(first, lookup.getSchemaForClass(ObjectWithTransientModifiers.class.getName()));
+        assertEquals(1, lookup.getSchemaCacheMisses());
+    }
+
+    @Test
+    public void testSchemaCacheInvalidatedWhileGenerating() {
+        SchemaCache cache = new SchemaCache(4);
+        long stamp = cache.stamp();
+        // the bundle of the class got refreshed while its schema was being generated
+        cache.invalidateBundle(42);
+        cache.put(ObjectWithTransientModifiers.class, 42, "{}", stamp);
+        assertFalse(cache.contains(ObjectWithTransientModifiers.class));
+
+        cache.put(ObjectWithTransientModifiers.class, 42, "{}", cache.stamp());
+        assertTrue(cache.contains(ObjectWithTransientModifiers.class));
+        assertEquals(0, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        SchemaLookup lookup = new SchemaLookup();
+        assertEquals("DISABLED", lookup.getWarmUpStatus());
+        lookup.setWarmUpClasses("java.lang.String, io.hawt.jsonschema.test.objects.*");
+        lookup.init();
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (!lookup.getWarmUpStatus().startsWith("COMPLETED") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(lookup.getWarmUpStatus().startsWith("COMPLETED"), lookup.getWarmUpStatus());
+        assertTrue(lookup.getSchemaCacheSize() > 1);
+        // the warm-up is no lookup
+        assertEquals(0, lookup.getSchemaCacheMisses());
+
+        lookup.getSchemaForClass(ObjectWithTransientModifiers.class.getName());
+        assertEquals(1, lookup.getSchemaCacheHits());
+        assertEquals(0, lookup.getSchemaCacheMisses());
+    }
+
+    @Test
+    public void testWarmUpBeyondCacheSize() throws Exception {
+        SchemaLookup lookup = new SchemaLookup();
+        lookup.setMaxCachedSchemas(2);
+        lookup.setWarmUpClasses("io.hawt.jsonschema.test.objects.*");
+        lookup.init();
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (!lookup.getWarmUpStatus().startsWith("COMPLETED") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // the classes beyond the size of the cache would only evict the others
+        assertTrue(lookup.getWarmUpStatus().startsWith("COMPLETED: 2 of 2 "), lookup.getWarmUpStatus());
+        assertEquals(2, lookup.getSchemaCacheSize());
+    }
+
+    @Test
+    public void testMetrics() {
+        SchemaLookup lookup = createSchemaLookup();
+        lookup.getSchemaForClass("io.hawt.jsonschema.test.objects.ObjectWithJaxbAnnotations");
+        lookup.getSchemaForClass("io.hawt.jsonschema.test.objects.ObjectWithJaxbAnnotations");
+        assertThrows(RuntimeException.class, () -> lookup.getSchemaForClass("James"));
+
+        assertEquals(3, lookup.getRequestCount());
+        assertEquals(1, lookup.getClassResolutionFailures());
+        assertEquals(1, lookup.getCustomizerHits());
+        assertEquals(0.5, lookup.getSchemaCacheHitRatio());
+        assertTrue(lookup.getLatencyP50Micros() <= lookup.getLatencyP99Micros());
+        assertTrue(lookup.getLatencyP99Micros() <= lookup.getLatencyMaxMicros());
+        assertTrue(lookup.getLatencyMaxMicros() > 0);
+
+        lookup.resetMetrics();
+        assertEquals(0, lookup.getRequestCount());
+        assertEquals(0, lookup.getLatencyMaxMicros());
+        assertEquals(0, lookup.getSchemaCacheHitRatio());
+    }
+
+    @Test
+    public void testCustomizerInvalidation() throws Exception {
+        List<String> changed = new ArrayList<>();
+        List<String> probed = new ArrayList<>();
+        SchemaCustomizerRegistry registry = new SchemaCustomizerRegistry(name -> {
+            probed.add(name);
+            return null;
+        }, changed::add);
+        changed.clear();
+        assertTrue(SchemaCustomizerRegistry.isNone(registry.customizerFor(ObjectWithTransientModifiers.class)));
+        assertEquals(1, probed.size());
+
+        registry.register(new ObjectWithJaxbAnnotationsSchemaCustomizer());
+        assertEquals(List.of(ObjectWithJaxbAnnotations.class.getName()), changed);
+        assertTrue(registry.customizerFor(ObjectWithJaxbAnnotations.class)
+            instanceof ObjectWithJaxbAnnotationsSchemaCustomizer);
+
+        // the lack of customizer of the other classes is still known
+        registry.customizerFor(ObjectWithTransientModifiers.class);
+        assertEquals(1, probed.size());
+        registry.bundleResolved(bundleWithEntries(new URL("file:/io/hawt/jsonschema/internal/customizers/"
+            + ObjectWithTransientModifiers.class.getName().replace('.', '/') + "SchemaCustomizer.class")));
+        registry.customizerFor(ObjectWithTransientModifiers.class);
+        assertEquals(2, probed.size());
+
+        // only the classes a resolved bundle holds the customizers of are affected
+        changed.clear();
+        registry.bundleResolved(bundleWithEntries());
+        assertTrue(changed.isEmpty());
+        registry.bundleResolved(bundleWithEntries(
+            new URL("file:/io/hawt/jsonschema/internal/customizers/com/foo/BarSchemaCustomizer.class")));
+        assertEquals(List.of("com.foo.Bar"), changed);
+    }
+
+    private static Bundle bundleWithEntries(URL... entries) {
+        return (Bundle) Proxy.newProxyInstance(Bundle.class.getClassLoader(), new Class<?>[] { Bundle.class },
+            (proxy, method, args) -> "findEntries".equals(method.getName())
+                ? Collections.enumeration(List.of(entries)) : null);
+    }
+
+    @Test
+    public void testBundleClassIndex() {
+        List<String> probes = new ArrayList<>();
+        List<Bundle> bundles = new ArrayList<>();
+        Bundle exporter = bundle("exporter", probes, "io.hawt.jsonschema.test.objects",
+            Map.of(ObjectWithJaxbAnnotations.class.getName(), ObjectWithJaxbAnnotations.class));
+        Bundle other = bundle("other", probes, null, Map.of());
+        bundles.add(exporter);
+        bundles.add(other);
+        BundleContext context = (BundleContext) Proxy.newProxyInstance(BundleContext.class.getClassLoader(),
+            new Class<?>[] { BundleContext.class },
+            (proxy, method, args) -> "getBundles".equals(method.getName()) ? bundles.toArray(new Bundle[0]) : null);
+        BundleClassIndex index = new BundleClassIndex(context);
+
+        // the exported package leads straight to its bundle
+        assertSame(ObjectWithJaxbAnnotations.class, index.loadClass(ObjectWithJaxbAnnotations.class.getName()));
+        assertEquals(List.of("exporter:" + ObjectWithJaxbAnnotations.class.getName()), probes);
+
+        // a missing class probes every bundle once, then fails fast
+        probes.clear();
+        assertNull(index.loadClass("com.foo.Bar"));
+        assertEquals(2, probes.size());
+        probes.clear();
+        assertNull(index.loadClass("com.foo.Bar"));
+        assertTrue(probes.isEmpty());
+
+        // a bundle getting resolved may provide the missing classes
+        Bundle provider = bundle("provider", probes, "com.foo", Map.of("com.foo.Bar", ObjectWithJsonAnnotations.class));
+        bundles.add(provider);
+        index.bundleChanged(new BundleEvent(BundleEvent.RESOLVED, provider));
+        assertSame(ObjectWithJsonAnnotations.class, index.loadClass("com.foo.Bar"));
+        assertEquals(List.of("provider:com.foo.Bar"), probes);
+
+        // the classes of an uninstalled bundle are gone
+        bundles.remove(exporter);
+        index.bundleChanged(new BundleEvent(BundleEvent.UNINSTALLED, exporter));
+        probes.clear();
+        assertNull(index.loadClass(ObjectWithJaxbAnnotations.class.getName()));
+        assertFalse(probes.contains("exporter:" + ObjectWithJaxbAnnotations.class.getName()));
+    }
+
+    /**
+     * A resolved bundle loading the given classes, recording each attempt in the probes
+     */
+    private static Bundle bundle(String name, List<String> probes, String exportedPackage,
+                                 Map<String, Class<?>> classes) {
+        BundleCapability export = (BundleCapability) Proxy.newProxyInstance(BundleCapability.class.getClassLoader(),
+            new Class<?>[] { BundleCapability.class },
+            (proxy, method, args) -> "getAttributes".equals(method.getName())
+                ? Map.of(PackageNamespace.PACKAGE_NAMESPACE, exportedPackage) : null);
+        BundleWiring wiring = (BundleWiring) Proxy.newProxyInstance(BundleWiring.class.getClassLoader(),
+            new Class<?>[] { BundleWiring.class },
+            (proxy, method, args) -> "getCapabilities".equals(method.getName())
+                ? (exportedPackage != null ? List.of(export) : List.of()) : null);
+        return (Bundle) Proxy.newProxyInstance(Bundle.class.getClassLoader(), new Class<?>[] { Bundle.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                case "getState":
+                    return Bundle.RESOLVED;
+                case "adapt":
+                    return wiring;
+                case "loadClass":
+                    probes.add(name + ":" + args[0]);
+                    Class<?> clazz = classes.get(args[0]);
+                    if (clazz == null) {
+                        throw new ClassNotFoundException((String) args[0]);
+                    }
+                    return clazz;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return name;
+                default:
+                    return null;
+                }
+            });
+    }
+
     protected SchemaLookup createSchemaLookup() {
         SchemaLookup lookup = new SchemaLookup();
         lookup.init();
@@ -56,6 +387,7 @@ public class SchemaLookupTest {
         SchemaLookup lookup = createSchemaLookup();
         String result = lookup.getSchemaForClass("io.hawt.jsonschema.test.objects.ObjectWithJsonAnnotations");
         System.out.println("testObjectWithJsonAnnotations - Got: \n\n" + result + "\n\n");
+        assertTrue(result.contains("\"description\" : \"registered-customizer\""));
     }
 
     @Test
@@ -63,6 +395,16 @@ public class SchemaLookupTest {
         SchemaLookup lookup = createSchemaLookup();
         String result = lookup.getSchemaForClass(ObjectWithTransientModifiers.class.getName());
         System.out.println("testObjectWithTransientModifiers - Got: \n\n" + result + "\n\n");
+        assertTrue(result.contains("nonTransient"));
+        assertFalse(result.contains("someTransientThing"));
+    }
+
+    @Test
+    public void testSchemaClasses() {
+        SchemaLookup lookup = createSchemaLookup();
+        Set<Class<?>> classes = lookup.getSchemaClasses(ObjectWithJaxbAnnotations.class);
+        assertEquals(Set.of(ObjectWithJaxbAnnotations.class, ObjectWithJaxbAnnotationsSchemaCustomizer.class), classes);
+        assertTrue(lookup.getSchemaClasses(String.class).isEmpty());
     }
 
 }
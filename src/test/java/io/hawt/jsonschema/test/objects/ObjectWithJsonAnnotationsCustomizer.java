@@ -0,0 +1,22 @@
+package io.hawt.jsonschema.test.objects;
+
+import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
+import io.hawt.jsonschema.internal.customizers.JsonSchemaCustomizer;
+
+/**
+ * Registered through ServiceLoader rather than found by its name
+ */
+public class ObjectWithJsonAnnotationsCustomizer extends JsonSchemaCustomizer {
+
+    @Override
+    public JsonSchema customize(JsonSchema originalSchema) {
+        originalSchema.setDescription("registered-customizer");
+        return originalSchema;
+    }
+
+    @Override
+    public String getCustomizedClassName() {
+        return ObjectWithJsonAnnotations.class.getName();
+    }
+
+}